@@ -0,0 +1,123 @@
+package eu.id2go.news2go;
+
+import android.app.Instrumentation;
+import android.content.Loader;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.widget.ListView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark that shows 1000 reports in {@link ReportActivity}, flings the list from
+ * the first to the last row and reports the frames the {@link FrameTimeMonitor} saw dropped.
+ * Run it with scripts/fling_benchmark.sh, which prints the reported numbers.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FlingFrameTest {
+
+    private static final String LOG_TAG = FlingFrameTest.class.getName();
+
+    private static final int REPORT_COUNT = 1000;
+    private static final int FLING_VELOCITY = 8000;
+    private static final int MAX_FLINGS = 200;
+
+    /**
+     * Words the report titles are made of
+     */
+    private static final String[] TITLE_WORDS = {
+            "government", "announces", "plans", "new", "railway", "across", "north", "unions",
+            "threaten", "strike", "over", "pay", "talks", "ministers", "face", "backlash",
+            "after", "budget", "cuts", "local", "services", "schools", "hospital", "waiting",
+            "times", "rise", "again", "during", "winter", "crisis", "energy", "bills", "expected",
+            "fall", "spring", "says", "regulator", "court", "rules", "against", "landlords",
+            "flood", "defences", "delayed", "years", "council", "housing", "rents", "tenants"};
+
+    @Rule
+    public final ActivityTestRule<ReportActivity> mActivityRule =
+            new ActivityTestRule<>(ReportActivity.class);
+
+    @Test
+    public void flingsThroughThousandRows() throws Exception {
+        final ReportActivity activity = mActivityRule.getActivity();
+        final ListView listView = activity.reportListView;
+        final List<Report> reports = new ArrayList<>();
+        // Titles of 4 to 15 words like the GUARDIAN's, so the rows wrap to one, two or three
+        // lines, and different enough not to be collapsed into "+N similar" rows
+        java.util.Random random = new java.util.Random(REPORT_COUNT);
+        for (int i = 0; i < REPORT_COUNT; i++) {
+            int words = 4 + random.nextInt(12);
+            StringBuilder title = new StringBuilder();
+            for (int word = 0; word < words; word++) {
+                title.append(word == 0 ? "" : " ")
+                        .append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            }
+            title.setCharAt(0, Character.toUpperCase(title.charAt(0)));
+            reports.add(new Report("Jane", "Doe", title.toString(), "Politics",
+                    "2018-06-01T10:00:00Z", "https://www.theguardian.com/report/" + i));
+        }
+
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final FrameTimeMonitor[] monitor = new FrameTimeMonitor[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // Show the recorded reports instead of whatever the network delivers
+                activity.getLoaderManager().destroyLoader(ReportActivity.REPORT_LOADER_ID);
+                activity.onLoadFinished(new Loader<List<Report>>(activity), reports);
+                monitor[0] = new FrameTimeMonitor(
+                        activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+            }
+        });
+        instrumentation.waitForIdleSync();
+        assertEquals(REPORT_COUNT, listView.getCount());
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                monitor[0].start();
+            }
+        });
+        int flings = 0;
+        while (listView.getLastVisiblePosition() < REPORT_COUNT - 1 && flings < MAX_FLINGS) {
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    listView.fling(FLING_VELOCITY);
+                }
+            });
+            flings++;
+            // Let the fling run out, the frames keep being recorded meanwhile
+            SystemClock.sleep(1000);
+        }
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                monitor[0].stop();
+            }
+        });
+        assertEquals(REPORT_COUNT - 1, listView.getLastVisiblePosition());
+
+        Bundle results = new Bundle();
+        results.putInt("rows", REPORT_COUNT);
+        results.putInt("flings", flings);
+        results.putInt("frames", monitor[0].getFrames());
+        results.putInt("dropped_frames", monitor[0].getDroppedFrames());
+        results.putFloat("worst_frame_ms", monitor[0].getWorstFrameNanos() / 1000000f);
+        instrumentation.sendStatus(0, results);
+        Log.i(LOG_TAG, REPORT_COUNT + " rows in " + flings + " flings: " + monitor[0].getFrames()
+                + " frames, " + monitor[0].getDroppedFrames() + " dropped, worst frame "
+                + monitor[0].getWorstFrameNanos() / 1000000f + " ms");
+    }
+}
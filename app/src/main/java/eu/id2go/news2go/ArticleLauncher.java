@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.customtabs.CustomTabsCallback;
+import android.support.customtabs.CustomTabsClient;
+import android.support.customtabs.CustomTabsIntent;
+import android.support.customtabs.CustomTabsService;
+import android.support.customtabs.CustomTabsServiceConnection;
+import android.support.customtabs.CustomTabsSession;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link ArticleLauncher} opens report URLs in a Custom Tab. The browser that handles the
+ * URLs is resolved once, off the main thread, the Custom Tabs service is bound and warmed up
+ * and the rows the user is most likely to tap next are preloaded with mayLaunchUrl().
+ * The time from tap to the first finished navigation is logged.
+ */
+public class ArticleLauncher {
+
+    /**
+     * Tag for the launch latency log messages
+     */
+    private static final String LOG_TAG = ArticleLauncher.class.getName();
+
+    private final Context mContext;
+
+    /**
+     * Package of the browser that supports Custom Tabs, null when there is none
+     */
+    private volatile String mCustomTabsPackage;
+
+    /**
+     * True once at least one activity is known to handle web URLs
+     */
+    private volatile boolean mCanViewUrls;
+
+    /**
+     * True once the browser has been resolved
+     */
+    private volatile boolean mResolved;
+
+    private CustomTabsServiceConnection mConnection;
+    private CustomTabsSession mSession;
+
+    /**
+     * True once {@link #unbind()} was called, a late resolve must not bind the service anymore
+     */
+    private boolean mUnbound;
+
+    /**
+     * The URLs last passed to mayLaunchUrl(), so they are not preloaded twice in a row
+     */
+    private List<String> mLikelyUrls = new ArrayList<>();
+
+    /**
+     * Tap time in elapsedRealtime() of the article being opened, 0 when none is pending
+     */
+    private volatile long mTapMillis;
+
+    /**
+     * Constructs a new {@link ArticleLauncher}.
+     *
+     * @param context of the activity that opens the articles
+     */
+    public ArticleLauncher(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Resolves the browser on a background thread and binds to its Custom Tabs service.
+     */
+    public void bind() {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Intent probe = new Intent(Intent.ACTION_VIEW, Uri.parse("https://www.theguardian.com/"));
+                mCanViewUrls = !mContext.getPackageManager().queryIntentActivities(probe, 0).isEmpty();
+                mCustomTabsPackage = CustomTabsClient.getPackageName(mContext, null);
+                mResolved = true;
+                if (mCustomTabsPackage != null) {
+                    bindService(mCustomTabsPackage);
+                }
+            }
+        });
+    }
+
+    private synchronized void bindService(String packageName) {
+        if (mUnbound) {
+            return;
+        }
+        mConnection = new CustomTabsServiceConnection() {
+            @Override
+            public void onCustomTabsServiceConnected(ComponentName name, CustomTabsClient client) {
+                client.warmup(0);
+                synchronized (ArticleLauncher.this) {
+                    mSession = client.newSession(new LatencyCallback());
+                    mLikelyUrls = new ArrayList<>();
+                }
+            }
+
+            @Override
+            public void onServiceDisconnected(ComponentName name) {
+                synchronized (ArticleLauncher.this) {
+                    mSession = null;
+                }
+            }
+        };
+        if (!CustomTabsClient.bindCustomTabsService(mContext, packageName, mConnection)) {
+            mConnection = null;
+        }
+    }
+
+    /**
+     * Unbinds from the Custom Tabs service, call this when the activity is destroyed.
+     */
+    public synchronized void unbind() {
+        mUnbound = true;
+        if (mConnection != null) {
+            mContext.unbindService(mConnection);
+            mConnection = null;
+        }
+        mSession = null;
+    }
+
+    /**
+     * Tells the browser which articles are most likely to be opened next.
+     *
+     * @param urls of the likely articles, the most likely one first
+     */
+    public synchronized void mayLaunchUrls(List<String> urls) {
+        if (mSession == null || urls.isEmpty() || urls.equals(mLikelyUrls)) {
+            return;
+        }
+        mLikelyUrls = new ArrayList<>(urls);
+
+        List<Bundle> otherLikelyBundles = new ArrayList<>();
+        for (int i = 1; i < urls.size(); i++) {
+            Bundle bundle = new Bundle();
+            bundle.putParcelable(CustomTabsService.KEY_URL, Uri.parse(urls.get(i)));
+            otherLikelyBundles.add(bundle);
+        }
+        mSession.mayLaunchUrl(Uri.parse(urls.get(0)), null, otherLikelyBundles);
+    }
+
+    /**
+     * Opens the article in a Custom Tab, or in any web browser when Custom Tabs are not
+     * supported. Nothing happens when no app can show the URL.
+     *
+     * @param activityContext is the activity the article is opened from
+     * @param url             of the article
+     */
+    public void launch(Context activityContext, String url) {
+        Uri reportUri = Uri.parse(url);
+        CustomTabsSession session;
+        synchronized (this) {
+            session = mSession;
+        }
+
+        if (session != null) {
+            mTapMillis = SystemClock.elapsedRealtime();
+            new CustomTabsIntent.Builder(session).build().launchUrl(activityContext, reportUri);
+        } else if (mCanViewUrls || !mResolved) {
+            try {
+                activityContext.startActivity(new Intent(Intent.ACTION_VIEW, reportUri));
+            } catch (android.content.ActivityNotFoundException e) {
+                Log.w(LOG_TAG, "No browser found to open " + url, e);
+            }
+        } else {
+            Log.w(LOG_TAG, "No browser found to open " + url);
+        }
+    }
+
+    /**
+     * Logs the time from tap to the first navigation events of the Custom Tab.
+     */
+    private class LatencyCallback extends CustomTabsCallback {
+        @Override
+        public void onNavigationEvent(int navigationEvent, Bundle extras) {
+            if (mTapMillis == 0) {
+                return;
+            }
+            long latency = SystemClock.elapsedRealtime() - mTapMillis;
+            if (navigationEvent == NAVIGATION_STARTED) {
+                Log.i(LOG_TAG, "Tap to navigation start: " + latency + " ms");
+            } else if (navigationEvent == NAVIGATION_FINISHED) {
+                Log.i(LOG_TAG, "Tap to first page load: " + latency + " ms");
+                mTapMillis = 0;
+            }
+        }
+    }
+}
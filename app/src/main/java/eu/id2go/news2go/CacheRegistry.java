@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link CacheRegistry} governs every in-app memory cache. Caches register with their
+ * priority and report their byte cost, the registry keeps their sum under one global heap budget
+ * and sheds the least valuable caches first when the budget is exceeded or memory runs low.
+ */
+public class CacheRegistry {
+
+    /**
+     * Priorities of registered caches, caches with a lower priority are trimmed first
+     */
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 50;
+    public static final int PRIORITY_HIGH = 100;
+
+    /**
+     * Budget used until the application sets one from the memory class of the device
+     */
+    private static final long DEFAULT_BUDGET_BYTES = 4 * 1024 * 1024;
+
+    private static CacheRegistry sInstance;
+
+    /**
+     * A memory cache that can be governed by the {@link CacheRegistry}.
+     */
+    public interface Cache {
+
+        /**
+         * Returns the name of the cache in the occupancy statistics.
+         */
+        String getName();
+
+        /**
+         * Returns the priority of the cache, one of the PRIORITY_ constants or anything between.
+         */
+        int getPriority();
+
+        /**
+         * Returns the estimated number of bytes the cache holds on the heap.
+         */
+        long getByteCost();
+
+        /**
+         * Evicts entries until the cache holds no more than the given number of bytes.
+         *
+         * @return the number of entries that were evicted
+         */
+        int trimToSize(long maxBytes);
+    }
+
+    /**
+     * Occupancy and eviction count of one registered cache.
+     */
+    public static class CacheStats {
+        public final String name;
+        public final int priority;
+        public final long bytes;
+        public final long evictions;
+
+        CacheStats(String name, int priority, long bytes, long evictions) {
+            this.name = name;
+            this.priority = priority;
+            this.bytes = bytes;
+            this.evictions = evictions;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (priority " + priority + "): " + bytes + " bytes, "
+                    + evictions + " evictions";
+        }
+    }
+
+    /**
+     * Registered caches, the least valuable first
+     */
+    private final List<Cache> mCaches = new ArrayList<>();
+
+    /**
+     * Entries evicted per cache since it was registered
+     */
+    private final Map<Cache, Long> mEvictions = new HashMap<>();
+
+    private long mBudgetBytes;
+
+    /**
+     * Constructs a new {@link CacheRegistry}, use {@link #getInstance()} in the app.
+     *
+     * @param budgetBytes is the global heap budget of all registered caches together
+     */
+    public CacheRegistry(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the registry of the app.
+     */
+    public static synchronized CacheRegistry getInstance() {
+        if (sInstance == null) {
+            sInstance = new CacheRegistry(DEFAULT_BUDGET_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the global heap budget of all registered caches together.
+     */
+    public synchronized long getBudget() {
+        return mBudgetBytes;
+    }
+
+    /**
+     * Changes the global heap budget and trims the caches to fit.
+     */
+    public void setBudget(long budgetBytes) {
+        synchronized (this) {
+            mBudgetBytes = budgetBytes;
+        }
+        enforceBudget();
+    }
+
+    /**
+     * Puts a cache under the governance of the registry.
+     */
+    public synchronized void register(Cache cache) {
+        if (mCaches.contains(cache)) {
+            return;
+        }
+        mCaches.add(cache);
+        mEvictions.put(cache, 0L);
+        Collections.sort(mCaches, new Comparator<Cache>() {
+            @Override
+            public int compare(Cache a, Cache b) {
+                return a.getPriority() - b.getPriority();
+            }
+        });
+    }
+
+    /**
+     * Releases a cache from the registry, i.e. when its owner is destroyed.
+     */
+    public synchronized void unregister(Cache cache) {
+        mCaches.remove(cache);
+        mEvictions.remove(cache);
+    }
+
+    /**
+     * Returns the byte cost of all registered caches together.
+     */
+    public synchronized long getByteCost() {
+        long bytes = 0;
+        for (Cache cache : mCaches) {
+            bytes += cache.getByteCost();
+        }
+        return bytes;
+    }
+
+    /**
+     * Trims the caches to the global budget, registered caches call this after they grew.
+     */
+    public synchronized void enforceBudget() {
+        trimTo(mBudgetBytes);
+    }
+
+    /**
+     * Trims the caches to a fraction of the global budget, i.e. 0 to release everything.
+     */
+    public synchronized void trimToFraction(float fraction) {
+        trimTo((long) (mBudgetBytes * fraction));
+    }
+
+    /**
+     * Sheds entries, the least valuable cache first, until all caches together hold no more
+     * than the given number of bytes.
+     */
+    private void trimTo(long maxBytes) {
+        long excess = getByteCost() - maxBytes;
+        for (int i = 0; i < mCaches.size() && excess > 0; i++) {
+            Cache cache = mCaches.get(i);
+            long before = cache.getByteCost();
+            int evicted = cache.trimToSize(Math.max(0, before - excess));
+            mEvictions.put(cache, mEvictions.get(cache) + evicted);
+            excess -= before - cache.getByteCost();
+        }
+    }
+
+    /**
+     * Returns the occupancy and eviction count of every registered cache, for tuning.
+     */
+    public synchronized List<CacheStats> getStats() {
+        List<CacheStats> stats = new ArrayList<>(mCaches.size());
+        for (Cache cache : mCaches) {
+            stats.add(new CacheStats(cache.getName(), cache.getPriority(), cache.getByteCost(),
+                    mEvictions.get(cache)));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * A {@link FrameTimeMonitor} records the time between consecutive frames through the
+ * {@link Choreographer} while a scroll is in progress and logs how many frames were dropped
+ * once the list settles. Filter logcat on this class name to read the numbers.
+ */
+public class FrameTimeMonitor implements Choreographer.FrameCallback {
+
+    /**
+     * Tag for the frame time log messages
+     */
+    private static final String LOG_TAG = FrameTimeMonitor.class.getName();
+
+    /**
+     * Frame interval of the display in nanoseconds
+     */
+    private final long mFrameIntervalNanos;
+
+    private boolean mRunning;
+    private long mLastFrameNanos;
+    private long mStartNanos;
+    private int mFrames;
+    private int mDroppedFrames;
+    private long mWorstFrameNanos;
+
+    /**
+     * Constructs a new {@link FrameTimeMonitor}.
+     *
+     * @param refreshRate of the display in frames per second, see Display.getRefreshRate()
+     */
+    public FrameTimeMonitor(float refreshRate) {
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    /**
+     * Starts recording frames, does nothing when already recording.
+     */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameNanos = 0;
+        mFrames = 0;
+        mDroppedFrames = 0;
+        mWorstFrameNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stops recording and logs the frames that were drawn and dropped since {@link #start()}.
+     */
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        if (mFrames > 0) {
+            Log.i(LOG_TAG, "Scroll of " + (mLastFrameNanos - mStartNanos) / 1000000 + " ms: "
+                    + mFrames + " frames, " + mDroppedFrames + " dropped, worst frame "
+                    + mWorstFrameNanos / 1000000f + " ms");
+        }
+    }
+
+    /**
+     * Returns the number of frames recorded since the last {@link #start()}.
+     */
+    public int getFrames() {
+        return mFrames;
+    }
+
+    /**
+     * Returns the number of frames dropped since the last {@link #start()}.
+     */
+    public int getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * Returns the longest frame since the last {@link #start()} in nanoseconds.
+     */
+    public long getWorstFrameNanos() {
+        return mWorstFrameNanos;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos == 0) {
+            mStartNanos = frameTimeNanos;
+        } else {
+            long frameNanos = frameTimeNanos - mLastFrameNanos;
+            mFrames++;
+            // Every full frame interval missed on top of the expected one is a dropped frame
+            mDroppedFrames += (int) ((frameNanos - mFrameIntervalNanos / 2) / mFrameIntervalNanos);
+            mWorstFrameNanos = Math.max(mWorstFrameNanos, frameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link LivePoller} keeps a search up to date while the app is in the foreground. Every poll
+ * is a conditional request, bounded with from-date by the newest report shown, so it only asks
+ * for newer reports. Polls page forward from that bound, the oldest report first, so when more
+ * reports arrived than one page holds the next page is polled right away and none is skipped.
+ * The interval doubles after every poll without news and drops back to the minimum as soon as
+ * new reports arrive.
+ */
+public class LivePoller {
+
+    /**
+     * Tag for the poll log messages
+     */
+    private static final String LOG_TAG = LivePoller.class.getName();
+
+    /**
+     * Bounds of the adaptive poll interval
+     */
+    private static final long MIN_INTERVAL_MILLIS = 30 * 1000;
+    private static final long MAX_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Receives the new reports on the main thread.
+     */
+    public interface Listener {
+
+        /**
+         * Returns the webPublicationDate of the newest report shown, or null when none is shown.
+         */
+        String getNewestPublicationDate();
+
+        /**
+         * Called with reports newer than the newest one shown, the newest first.
+         */
+        void onNewReports(List<Report> reports);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Listener mListener;
+
+    /**
+     * Search URL the polls are derived from, null until the first load finished
+     */
+    private String mBaseUrl;
+
+    private long mIntervalMillis = MIN_INTERVAL_MILLIS;
+    private boolean mRunning;
+    private boolean mPolling;
+
+    /**
+     * ETag of the last response and the URL it belongs to
+     */
+    private String mEtag;
+    private String mEtagUrl;
+
+    /**
+     * Publication date of the newest report delivered by a poll that had more pages, the next
+     * poll continues from it right away; null otherwise
+     */
+    private String mContinueDate;
+
+    private final Runnable mPollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+
+    /**
+     * Constructs a new {@link LivePoller}.
+     *
+     * @param listener receives the new reports
+     */
+    public LivePoller(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Sets the search URL that is kept up to date.
+     */
+    public void setBaseUrl(String baseUrl) {
+        mBaseUrl = baseUrl;
+    }
+
+    /**
+     * Starts polling after the current interval, call this when the activity comes to the
+     * foreground with live mode on.
+     */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        schedule();
+    }
+
+    /**
+     * Pauses polling, call this when the activity goes to the background.
+     */
+    public void stop() {
+        mRunning = false;
+        mHandler.removeCallbacks(mPollRunnable);
+    }
+
+    private void schedule() {
+        schedule(mIntervalMillis);
+    }
+
+    private void schedule(long delayMillis) {
+        mHandler.removeCallbacks(mPollRunnable);
+        if (mRunning) {
+            mHandler.postDelayed(mPollRunnable, delayMillis);
+        }
+    }
+
+    private void poll() {
+        String newestDate = mListener.getNewestPublicationDate();
+        // Continue after the last page delivered, even if none of it was shown
+        if (mContinueDate != null && (newestDate == null || mContinueDate.compareTo(newestDate) > 0)) {
+            newestDate = mContinueDate;
+        }
+        mContinueDate = null;
+        if (!mRunning || mPolling || mBaseUrl == null || newestDate == null) {
+            schedule();
+            return;
+        }
+        mPolling = true;
+        // from-date includes its bound, start a second after the newest report shown so a poll
+        // without news comes back empty and is not parsed
+        final String pollUrl = QueryUtils.buildDateBoundedUrl(mBaseUrl, "oldest",
+                QueryUtils.shiftPublicationDate(newestDate, 1), null);
+        final String etag = pollUrl.equals(mEtagUrl) ? mEtag : null;
+        final String newest = newestDate;
+
+        new AsyncTask<Void, Void, QueryUtils.PollResult>() {
+            @Override
+            protected QueryUtils.PollResult doInBackground(Void... params) {
+                return QueryUtils.pollNewReports(pollUrl, etag);
+            }
+
+            @Override
+            protected void onPostExecute(QueryUtils.PollResult result) {
+                mPolling = false;
+                onPolled(pollUrl, newest, result);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private void onPolled(String pollUrl, String newestDate, QueryUtils.PollResult result) {
+        if (!mRunning) {
+            // Stopped meanwhile, the reports are dropped and so is the ETag, the next poll of
+            // the same URL must not be answered with "not modified"
+            return;
+        }
+
+        List<Report> newReports = new ArrayList<>();
+        if (result.reports != null) {
+            mEtagUrl = pollUrl;
+            mEtag = result.etag;
+
+            // Keep only strictly newer reports, in case the date could not be shifted. The page
+            // comes oldest first, the listener gets the newest first
+            Set<String> urls = new HashSet<>();
+            for (Report report : result.reports) {
+                if (report.getDateOfPublication().compareTo(newestDate) > 0 && urls.add(report.getUrl())) {
+                    newReports.add(report);
+                }
+            }
+            Collections.reverse(newReports);
+            if (result.morePages && !newReports.isEmpty()) {
+                mContinueDate = newReports.get(0).getDateOfPublication();
+            }
+        }
+
+        if (newReports.isEmpty()) {
+            mIntervalMillis = Math.min(mIntervalMillis * 2, MAX_INTERVAL_MILLIS);
+        } else {
+            mIntervalMillis = MIN_INTERVAL_MILLIS;
+            mListener.onNewReports(newReports);
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(LOG_TAG, newReports.size() + " new reports, " + result.bodyLength + " chars read, "
+                    + (mContinueDate != null ? "next page now" : "next poll in " + mIntervalMillis / 1000 + " s"));
+        }
+        schedule(mContinueDate != null ? 0 : mIntervalMillis);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used {@link MemoryCache} that is governed by a {@link CacheRegistry}: it has
+ * no size limit of its own, the registry trims it when the global heap budget is exceeded.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ */
+public class MemoryCache<K, V> implements CacheRegistry.Cache {
+
+    /**
+     * Estimates the heap bytes of a cache entry.
+     */
+    public interface Sizer<K, V> {
+        long sizeOf(K key, V value);
+    }
+
+    private final String mName;
+    private final int mPriority;
+    private final Sizer<K, V> mSizer;
+    private final CacheRegistry mRegistry;
+
+    /**
+     * Entries in access order, the least recently used first
+     */
+    private final LinkedHashMap<K, V> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long mByteCost;
+
+    /**
+     * Constructs a new {@link MemoryCache} and registers it with the registry.
+     *
+     * @param name     of the cache in the registry statistics
+     * @param priority of the cache, see {@link CacheRegistry#PRIORITY_NORMAL}
+     * @param sizer    estimates the heap bytes of an entry
+     * @param registry that governs the cache
+     */
+    public MemoryCache(String name, int priority, Sizer<K, V> sizer, CacheRegistry registry) {
+        mName = name;
+        mPriority = priority;
+        mSizer = sizer;
+        mRegistry = registry;
+        registry.register(this);
+    }
+
+    /**
+     * Returns the cached value of the key, or null when it is not cached.
+     */
+    public synchronized V get(K key) {
+        return mEntries.get(key);
+    }
+
+    /**
+     * Caches the value and lets the registry trim the caches back to the global budget.
+     */
+    public void put(K key, V value) {
+        synchronized (this) {
+            V previous = mEntries.put(key, value);
+            if (previous != null) {
+                mByteCost -= mSizer.sizeOf(key, previous);
+            }
+            mByteCost += mSizer.sizeOf(key, value);
+        }
+        // Called without holding the cache lock, the registry locks itself and then the caches
+        mRegistry.enforceBudget();
+    }
+
+    /**
+     * Removes the value of the key from the cache.
+     */
+    public synchronized void remove(K key) {
+        V previous = mEntries.remove(key);
+        if (previous != null) {
+            mByteCost -= mSizer.sizeOf(key, previous);
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public int getPriority() {
+        return mPriority;
+    }
+
+    @Override
+    public synchronized long getByteCost() {
+        return mByteCost;
+    }
+
+    @Override
+    public synchronized int trimToSize(long maxBytes) {
+        int evicted = 0;
+        Iterator<Map.Entry<K, V>> iterator = mEntries.entrySet().iterator();
+        while (mByteCost > maxBytes && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            mByteCost -= mSizer.sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            evicted++;
+        }
+        return evicted;
+    }
+}
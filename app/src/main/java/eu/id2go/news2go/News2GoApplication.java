@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * The {@link News2GoApplication} sizes the {@link CacheRegistry} budget for the device and
+ * forwards the memory pressure signals of the system to it.
+ */
+public class News2GoApplication extends Application {
+
+    /**
+     * Tag for the cache statistics log messages
+     */
+    private static final String LOG_TAG = News2GoApplication.class.getName();
+
+    /**
+     * Share of the per-app heap (ActivityManager.getMemoryClass()) all caches together may use
+     */
+    private static final int HEAP_BUDGET_DIVISOR = 8;
+
+    @Override
+    public void onCreate() {
+        StartupTrace.start();
+        StartupTrace.phase("News2GoApplication.onCreate");
+        super.onCreate();
+        ActivityManager activityManager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+        long heapBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+        CacheRegistry.getInstance().setBudget(heapBytes / HEAP_BUDGET_DIVISOR);
+        StartupTrace.endPhase();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // The deeper the level, the smaller the share of the budget the caches may keep.
+        // The registry sheds the least valuable caches first.
+        float keep;
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            keep = 0f;
+        } else if (level >= TRIM_MEMORY_MODERATE) {
+            keep = 0.125f;
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            keep = 0.25f;
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            keep = 0.5f;
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            keep = 0.25f;
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            keep = 0.5f;
+        } else {
+            keep = 0.75f;
+        }
+        CacheRegistry.getInstance().trimToFraction(keep);
+        logCacheStats("onTrimMemory(" + level + ")");
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        CacheRegistry.getInstance().trimToFraction(0f);
+        logCacheStats("onLowMemory()");
+    }
+
+    /**
+     * Logs the occupancy and evictions of every cache, filter logcat on this class to tune them.
+     */
+    private static void logCacheStats(String reason) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        CacheRegistry registry = CacheRegistry.getInstance();
+        Log.d(LOG_TAG, reason + ": " + registry.getByteCost() + " of " + registry.getBudget()
+                + " bytes in use");
+        for (CacheRegistry.CacheStats stats : registry.getStats()) {
+            Log.d(LOG_TAG, "  " + stats);
+        }
+    }
+}
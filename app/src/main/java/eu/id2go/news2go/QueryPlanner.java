@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link QueryPlanner} sits between the screen and {@link QueryUtils}. Every consumer of a
+ * GUARDIAN search declares the report fields it needs, the planner merges the fields of all
+ * consumers served by the same search and asks for the smallest set of show parameters that
+ * delivers them. It also keeps track of how much of every response is actually used, the totals
+ * are part of the activity dump: adb shell dumpsys activity eu.id2go.news2go
+ */
+public final class QueryPlanner {
+
+    /**
+     * Tag for the usage log messages
+     */
+    private static final String LOG_TAG = QueryPlanner.class.getName();
+
+    /**
+     * Report fields a consumer can declare
+     */
+    public static final int FIELD_TITLE = 1;
+    public static final int FIELD_SECTION = 1 << 1;
+    public static final int FIELD_PUBLICATION_DATE = 1 << 2;
+    public static final int FIELD_URL = 1 << 3;
+    public static final int FIELD_CONTRIBUTORS = 1 << 4;
+
+    /**
+     * Fields of the consumers of a search: the rows of the list, the reader that opens the
+     * article, the section & author facets and the live & timeline sync that page by date
+     */
+    public static final int CONSUMER_LIST_ROW = FIELD_TITLE | FIELD_SECTION
+            | FIELD_PUBLICATION_DATE | FIELD_CONTRIBUTORS;
+    public static final int CONSUMER_READER = FIELD_URL;
+    public static final int CONSUMER_SEARCH = FIELD_SECTION | FIELD_CONTRIBUTORS;
+    public static final int CONSUMER_SYNC = FIELD_PUBLICATION_DATE | FIELD_URL;
+
+    /**
+     * Totals of the response characters read and used by all planned searches
+     */
+    private static long sRequestedChars;
+    private static long sUsedChars;
+
+    private QueryPlanner() {
+    }
+
+    /**
+     * Returns the union of the fields of the consumers that share one search, so a single
+     * request serves them all.
+     */
+    public static int merge(int... consumers) {
+        int fields = 0;
+        for (int consumer : consumers) {
+            fields |= consumer;
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the smallest set of show parameters that delivers the fields. Title, section,
+     * publication date & URL are part of every search result and need none; show-references is
+     * never needed.
+     */
+    public static Map<String, String> showParametersOf(int fields) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        if ((fields & FIELD_CONTRIBUTORS) != 0) {
+            parameters.put("show-tags", "contributor");
+        }
+        return parameters;
+    }
+
+    /**
+     * Appends the show parameters of the fields to a search URL under construction.
+     */
+    public static void appendShowParameters(android.net.Uri.Builder uriBuilder, int fields) {
+        for (Map.Entry<String, String> parameter : showParametersOf(fields).entrySet()) {
+            uriBuilder.appendQueryParameter(parameter.getKey(), parameter.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of response characters that ended up in the reports, i.e. the
+     * characters of every string a report keeps.
+     */
+    public static long usedCharsOf(List<Report> reports) {
+        long chars = 0;
+        for (Report report : reports) {
+            chars += report.getArticleTitle().length()
+                    + report.getSectionId().length()
+                    + report.getArticleSection().length()
+                    + report.getDateOfPublication().length()
+                    + report.getUrl().length()
+                    + report.getFirstName().length()
+                    + report.getLastName().length();
+            for (String contributor : report.getContributors()) {
+                chars += contributor.length();
+            }
+            for (String contributorId : report.getContributorIds()) {
+                chars += contributorId.length();
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Records how many characters of a search response were read and how many of them were
+     * used, and logs both in debug builds.
+     */
+    public static void recordUsage(String requestUrl, long requestedChars, long usedChars) {
+        synchronized (QueryPlanner.class) {
+            sRequestedChars += requestedChars;
+            sUsedChars += usedChars;
+        }
+        if (BuildConfig.DEBUG && requestedChars > 0) {
+            Log.d(LOG_TAG, requestUrl + " requested " + requestedChars + " chars, used "
+                    + usedChars + " (" + usedChars * 100 / requestedChars + "%)");
+        }
+    }
+
+    /**
+     * Returns the number of response characters read by all planned searches.
+     */
+    public static synchronized long getRequestedChars() {
+        return sRequestedChars;
+    }
+
+    /**
+     * Returns the number of response characters used by all planned searches.
+     */
+    public static synchronized long getUsedChars() {
+        return sUsedChars;
+    }
+}
@@ -31,6 +31,25 @@ public final class QueryUtils {
 
     private static final String LOG_TAG = QueryUtils.class.getName();
 
+    /**
+     * Matches the results of a response page without any result, whatever the whitespace
+     */
+    private static final java.util.regex.Pattern EMPTY_RESULTS =
+            java.util.regex.Pattern.compile("\"results\"\\s*:\\s*\\[\\s*\\]");
+
+    /**
+     * Match the number of pages of a search and the page a response holds
+     */
+    private static final java.util.regex.Pattern PAGES =
+            java.util.regex.Pattern.compile("\"pages\"\\s*:\\s*(\\d+)");
+    private static final java.util.regex.Pattern CURRENT_PAGE =
+            java.util.regex.Pattern.compile("\"currentPage\"\\s*:\\s*(\\d+)");
+
+    /**
+     * Format of the webPublicationDate of a report, i.e. "2018-06-01T10:00:00Z"
+     */
+    private static final String PUBLICATION_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
 
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
@@ -47,9 +66,9 @@ public final class QueryUtils {
 
     /**
      * Return a list of {@link Report} objects that has been built up from
-     * parsing a JSON response.
+     * parsing a JSON response. Package-private so the local benchmarks can parse recorded payloads.
      */
-    private static ArrayList<Report> extractFeatureFromJson(String reportJSON) {
+    static ArrayList<Report> extractFeatureFromJson(String reportJSON) {
         // If the JSON string is empty or null, then return early.
         if (android.text.TextUtils.isEmpty(reportJSON)) {
             return null;
@@ -77,20 +96,49 @@ public final class QueryUtils {
 
                 String firstName, lastName;
 
-                if (currentReport.getJSONArray("tags") != null && currentReport.getJSONArray("tags").length() != 0) {
+                // Look the tags up once, every contributor tag is kept for the facet index
+                JSONArray tags = currentReport.optJSONArray("tags");
+                java.util.List<String> contributors;
+                java.util.List<String> contributorIds;
+
+                if (tags != null && tags.length() != 0) {
+                    contributors = new ArrayList<>(tags.length());
+                    contributorIds = new ArrayList<>(tags.length());
 
                     // For a given report, extract the JSONObject associated with the
                     // key called "properties", which represents a list of all properties
                     // for that report.
                     // Exemple: JSONObject properties = currentReport.getJSONObject("firstName");
-                    firstName = currentReport.getJSONArray("tags").getJSONObject(0).optString("firstName");
+                    JSONObject firstTag = tags.getJSONObject(0);
+                    firstName = firstTag.optString("firstName");
                     // JSONObject properties = currentReport.getJSONObject("lastName");
-                    lastName = currentReport.getJSONArray("tags").getJSONObject(0).optString("lastName");
+                    lastName = firstTag.optString("lastName");
+
+                    for (int t = 0; t < tags.length(); t++) {
+                        JSONObject tag = tags.getJSONObject(t);
+                        // Prefer the display name of the tag, fall back to first & last name
+                        String contributor = tag.optString("webTitle");
+                        if (contributor.isEmpty()) {
+                            contributor = (tag.optString("firstName") + " "
+                                    + tag.optString("lastName")).trim();
+                        }
+                        if (!contributor.isEmpty()) {
+                            contributors.add(contributor);
+                            // The tag ID tells contributors with the same name apart
+                            String contributorId = tag.optString("id");
+                            contributorIds.add(contributorId.isEmpty() ? contributor : contributorId);
+                        }
+                    }
                 } else {
                     firstName = "";
                     lastName = "";
+                    contributors = java.util.Collections.emptyList();
+                    contributorIds = contributors;
                 }
 
+                // Extract the value for the key called "sectionId"
+                String sectionId = currentReport.optString("sectionId");
+
                 // Extract the value for the key called "sectionName"
                 String articleSection = currentReport.getString("sectionName");
 
@@ -103,9 +151,10 @@ public final class QueryUtils {
                 // Extract the value for the key called "webURL"
                 String url = currentReport.getString("webUrl");
 
-                // Create a new {@link Report} object with the articleTitle, articleSection, time,
-                // and url from the JSON response.
-                Report report = new Report(firstName, lastName, articleTitle, articleSection, time, url);
+                // Create a new {@link Report} object with the contributors, articleTitle,
+                // articleSection, time, and url from the JSON response.
+                Report report = new Report(firstName, lastName, contributors, contributorIds,
+                        articleTitle, sectionId, articleSection, time, url);
 
                 // Add the new {@link Report} to the list of reports.
                 reports.add(report);
@@ -148,12 +197,62 @@ public final class QueryUtils {
 
         // Extract relevant fields from the JSON response and create a list of {@link Report}s
         java.util.List<Report> reports = extractFeatureFromJson(jsonResponse);
+        if (reports != null) {
+            QueryPlanner.recordUsage(requestUrl, jsonResponse.length(),
+                    QueryPlanner.usedCharsOf(reports));
+        }
 
         // Return the list of {@link Report}s
         return reports;
     }
 
 
+    /**
+     * Returns the search URL with another order and bounded by publication date.
+     *
+     * @param baseUrl  is the search URL to derive from, its order-by & date bounds are replaced
+     * @param orderBy  is 'newest' or 'oldest'
+     * @param fromDate is the earliest publication date or time to return, or null
+     * @param toDate   is the latest publication date or time to return, or null
+     */
+    public static String buildDateBoundedUrl(String baseUrl, String orderBy, String fromDate,
+                                             String toDate) {
+        android.net.Uri baseUri = android.net.Uri.parse(baseUrl);
+        android.net.Uri.Builder uriBuilder = baseUri.buildUpon().clearQuery();
+        for (String name : baseUri.getQueryParameterNames()) {
+            if (!name.equals("order-by") && !name.equals("from-date") && !name.equals("to-date")) {
+                uriBuilder.appendQueryParameter(name, baseUri.getQueryParameter(name));
+            }
+        }
+        uriBuilder.appendQueryParameter("order-by", orderBy);
+        if (fromDate != null) {
+            uriBuilder.appendQueryParameter("from-date", fromDate);
+        }
+        if (toDate != null) {
+            uriBuilder.appendQueryParameter("to-date", toDate);
+        }
+        return uriBuilder.toString();
+    }
+
+    /**
+     * Returns the publication date the given number of seconds later or earlier. The date bounds
+     * of a search include their bound, a date shifted past the newest or oldest report shown
+     * keeps that report out of the next page.
+     *
+     * @return the shifted date, or the date itself when it is not a full publication date
+     */
+    public static String shiftPublicationDate(String publicationDate, int seconds) {
+        java.text.SimpleDateFormat format = new java.text.SimpleDateFormat(
+                PUBLICATION_DATE_FORMAT, java.util.Locale.US);
+        format.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
+        try {
+            java.util.Date date = format.parse(publicationDate);
+            return format.format(new java.util.Date(date.getTime() + seconds * 1000L));
+        } catch (java.text.ParseException e) {
+            return publicationDate;
+        }
+    }
+
     /**
      * Returns new URL object from the given string URL.
      */
@@ -211,6 +310,121 @@ public final class QueryUtils {
         return jsonResponse;
     }
 
+    /**
+     * Result of a conditional poll for new reports, see {@link #pollNewReports(String, String)}.
+     */
+    public static final class PollResult {
+
+        /**
+         * The new reports, empty when nothing changed, null when the request failed
+         */
+        public final java.util.List<Report> reports;
+
+        /**
+         * ETag of the response, to send along with the next poll of the same URL
+         */
+        public final String etag;
+
+        /**
+         * Number of response body characters that were read
+         */
+        public final int bodyLength;
+
+        /**
+         * True when the search has pages after this one, i.e. more reports than one page holds
+         * arrived since the from-date
+         */
+        public final boolean morePages;
+
+        PollResult(java.util.List<Report> reports, String etag, int bodyLength) {
+            this(reports, etag, bodyLength, false);
+        }
+
+        PollResult(java.util.List<Report> reports, String etag, int bodyLength, boolean morePages) {
+            this.reports = reports;
+            this.etag = etag;
+            this.bodyLength = bodyLength;
+            this.morePages = morePages;
+        }
+    }
+
+    /**
+     * Polls the GUARDIAN for reports with a conditional request. When the server answers that
+     * nothing was modified, or the response holds no results, the response is not parsed.
+     *
+     * @param requestUrl is a from-date bounded search URL
+     * @param etag       of the previous response of the same URL, or null
+     */
+    public static PollResult pollNewReports(String requestUrl, String etag) {
+        java.net.URL url = createUrl(requestUrl);
+        if (url == null) {
+            return new PollResult(null, null, 0);
+        }
+
+        java.net.HttpURLConnection urlConnection = null;
+        java.io.InputStream inputStream = null;
+        try {
+            urlConnection = (java.net.HttpURLConnection) url.openConnection();
+            urlConnection.setReadTimeout(10000 /* milliseconds */);
+            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            urlConnection.setRequestMethod("GET");
+            if (etag != null) {
+                urlConnection.setRequestProperty("If-None-Match", etag);
+            }
+            urlConnection.connect();
+
+            int responseCode = urlConnection.getResponseCode();
+            if (responseCode == java.net.HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return new PollResult(new ArrayList<Report>(), etag, 0);
+            }
+            if (responseCode != 200) {
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
+                return new PollResult(null, null, 0);
+            }
+
+            inputStream = urlConnection.getInputStream();
+            String jsonResponse = readFromStream(inputStream);
+            String newEtag = urlConnection.getHeaderField("ETag");
+
+            // An empty result page is recognized without building any JSONObject
+            if (EMPTY_RESULTS.matcher(jsonResponse).find()) {
+                return new PollResult(new ArrayList<Report>(), newEtag, jsonResponse.length());
+            }
+            java.util.List<Report> reports = extractFeatureFromJson(jsonResponse);
+            if (reports != null) {
+                QueryPlanner.recordUsage(requestUrl, jsonResponse.length(),
+                        QueryPlanner.usedCharsOf(reports));
+            }
+            return new PollResult(reports, newEtag, jsonResponse.length(),
+                    hasMorePages(jsonResponse));
+        } catch (java.io.IOException e) {
+            Log.e(LOG_TAG, "Problem polling for new reports.", e);
+            return new PollResult(null, null, 0);
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (java.io.IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the poll response.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true when a search response is followed by more pages, read from its "pages" &
+     * "currentPage" without building any JSONObject.
+     */
+    private static boolean hasMorePages(String jsonResponse) {
+        java.util.regex.Matcher pages = PAGES.matcher(jsonResponse);
+        java.util.regex.Matcher currentPage = CURRENT_PAGE.matcher(jsonResponse);
+        return pages.find() && currentPage.find()
+                && Long.parseLong(pages.group(1)) > Long.parseLong(currentPage.group(1));
+    }
+
     /**
      * Convert the {@link java.io.InputStream} into a String which contains the
      * whole JSON response from the server.
@@ -15,6 +15,9 @@
  */
 package eu.id2go.news2go;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * An {@link Report} object contains information related to a single report.
@@ -36,16 +39,38 @@ public class Report {
      */
     private String mArticleTitle;
 
+    /**
+     * Full names of every contributor tagged on the report, in the order the GUARDIAN lists them
+     */
+    private List<String> mContributors;
+
+    /**
+     * Tag ID of every contributor (i.e. "profile/jane-doe"), in the order of mContributors.
+     * Unlike the full names they tell two contributors with the same name apart.
+     */
+    private List<String> mContributorIds;
+
     /**
      * ArticleSection of the report
      */
     private String mArticleSection;
 
+    /**
+     * Section ID of the report (i.e. "culture"), stable across section name changes
+     */
+    private String mSectionId;
+
     /**
      * Time of the report
      */
     private String mDateOfPublication;
 
+    /**
+     * Date & time parts of the dateOfPublication, prepared once for the list rows
+     */
+    private String mDisplayDate;
+    private String mDisplayTime;
+
     /**
      * Website URL of the report
      */
@@ -65,12 +90,71 @@ public class Report {
      */
 //      public Report(String articleTitle, String sectionTitle, String dateOfPublication, String url) {
     public Report(String firstName, String lastName, String articleTitle, String sectionTitle, String dateOfPublication, String url) {
+        this(firstName, lastName, contributorsOf(firstName, lastName), articleTitle, "",
+                sectionTitle, dateOfPublication, url);
+    }
+
+    /**
+     * Constructs a new {@link Report} object that knows all of its contributors and its section ID.
+     *
+     * @param contributors is the full name of every news reporter tagged on the report
+     * @param sectionId    is the ID of the section where the report is published
+     */
+    public Report(String firstName, String lastName, List<String> contributors, String articleTitle,
+                  String sectionId, String sectionTitle, String dateOfPublication, String url) {
+        this(firstName, lastName, contributors, contributors, articleTitle, sectionId, sectionTitle,
+                dateOfPublication, url);
+    }
+
+    /**
+     * Constructs a new {@link Report} object that knows the tag ID of every contributor.
+     *
+     * @param contributors   is the full name of every news reporter tagged on the report
+     * @param contributorIds is the tag ID of every news reporter, in the order of contributors
+     * @param sectionId      is the ID of the section where the report is published
+     */
+    public Report(String firstName, String lastName, List<String> contributors,
+                  List<String> contributorIds, String articleTitle, String sectionId,
+                  String sectionTitle, String dateOfPublication, String url) {
+        if (contributorIds.size() != contributors.size()) {
+            throw new IllegalArgumentException("Every contributor needs one tag ID");
+        }
         mFirstName = firstName;
         mLastName = lastName;
+        mContributors = Collections.unmodifiableList(contributors);
+        mContributorIds = Collections.unmodifiableList(contributorIds);
         mArticleTitle = articleTitle;
+        mSectionId = sectionId;
         mArticleSection = sectionTitle;
         mDateOfPublication = dateOfPublication;
         mUrl = url;
+
+        // Reports are built on the loader thread, so the row text is prepared there as well
+        // instead of being split again every time the row is bound
+        int timeStart = dateOfPublication.indexOf('T');
+        int timeEnd = dateOfPublication.indexOf('Z');
+        if (timeEnd < 0) {
+            timeEnd = dateOfPublication.length();
+        }
+        if (timeStart < 0) {
+            mDisplayDate = dateOfPublication.substring(0, timeEnd).trim();
+            mDisplayTime = "";
+        } else {
+            mDisplayDate = dateOfPublication.substring(0, timeStart).trim();
+            mDisplayTime = dateOfPublication.substring(timeStart + 1, Math.max(timeStart + 1, timeEnd)).trim();
+        }
+    }
+
+    /**
+     * Builds the contributor list of a report that only knows its first news reporter.
+     */
+    private static List<String> contributorsOf(String firstName, String lastName) {
+        List<String> contributors = new ArrayList<>(1);
+        String fullName = (firstName + " " + lastName).trim();
+        if (!fullName.isEmpty()) {
+            contributors.add(fullName);
+        }
+        return contributors;
     }
 
     /**
@@ -87,6 +171,21 @@ public class Report {
     }
 
 
+    /**
+     * Returns the full names of all contributors of the report.
+     */
+    public List<String> getContributors() {
+        return mContributors;
+    }
+
+    /**
+     * Returns the tag IDs of all contributors of the report, in the order of
+     * {@link #getContributors()}.
+     */
+    public List<String> getContributorIds() {
+        return mContributorIds;
+    }
+
     public String getArticleTitle() {
         return mArticleTitle;
     }
@@ -98,6 +197,13 @@ public class Report {
         return mArticleSection;
     }
 
+    /**
+     * Returns the sectionId of the report.
+     */
+    public String getSectionId() {
+        return mSectionId;
+    }
+
     /**
      * Returns the time of the report in UNIX-time).
      */
@@ -105,6 +211,42 @@ public class Report {
         return mDateOfPublication;
     }
 
+    /**
+     * Returns the date part of the time of the report, i.e. "2018-06-01".
+     */
+    public String getDisplayDate() {
+        return mDisplayDate;
+    }
+
+    /**
+     * Returns the time of day part of the time of the report, i.e. "10:00:00".
+     */
+    public String getDisplayTime() {
+        return mDisplayTime;
+    }
+
+    /**
+     * Returns an estimate of the heap bytes held by the report, for the {@link CacheRegistry}.
+     */
+    public long estimateByteCost() {
+        long bytes = 64;
+        bytes += byteCostOf(mFirstName) + byteCostOf(mLastName) + byteCostOf(mArticleTitle)
+                + byteCostOf(mSectionId) + byteCostOf(mArticleSection)
+                + byteCostOf(mDateOfPublication) + byteCostOf(mDisplayDate)
+                + byteCostOf(mDisplayTime) + byteCostOf(mUrl);
+        for (int i = 0; i < mContributors.size(); i++) {
+            bytes += byteCostOf(mContributors.get(i));
+            if (mContributorIds.get(i) != mContributors.get(i)) {
+                bytes += byteCostOf(mContributorIds.get(i));
+            }
+        }
+        return bytes;
+    }
+
+    private static long byteCostOf(String string) {
+        return 40 + 2L * string.length();
+    }
+
     /**
      * Returns the website URL to find more information about the report.
      */
@@ -19,9 +19,6 @@ import android.app.LoaderManager;
 import android.app.LoaderManager.LoaderCallbacks;
 import android.content.Intent;
 import android.content.Loader;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
-import android.net.Uri;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
@@ -51,24 +48,17 @@ public class ReportActivity extends AppCompatActivity implements
      */
     public static final String LOG_TAG = ReportActivity.class.getName();
 
-    // Tags based api: q = finance, france, love, fairytails, books, films, music, science_fiction,
-    // non_fiction, romance, countries, etc.& order-by parameter should be 'newest' (default), 'oldest' or 'relevance'
-    // https://content.guardianapis.com/tags?q=finance&api-key=test
-    // Reference based api:q = author, contributor, books
-    // Sections based api : opinion, news, politics, culture, science, lifeandstyle,
-    // https://content.guardianapis.com/sections?q=culture&api-key=test
-    // api-key=test, test must be replaced by a free developer key!
     /**
-     * URL for report data from the GUARDIAN dataset
+     * Constant value for the report loader ID. We can choose any integer.
+     * This really only comes into play if you're using multiple loaders.
      */
-    private static final String GUARDIAN_REQUEST_URL = "http://content.guardianapis.com/search?";
-
+    static final int REPORT_LOADER_ID = 1;
 
     /**
-     * Constant value for the report loader ID. We can choose any integer.
-     * This really only comes into play if you're using multiple loaders.
+     * Loader ID of a date bounded search after a jump to a date. A list positioned at a date
+     * keeps its own loader, so it is recognized again after a configuration change.
      */
-    private static final int REPORT_LOADER_ID = 1;
+    private static final int JUMP_LOADER_ID = 2;
 
     /**
      * @BindView ButterKnife library is a view injection library that injects views into android
@@ -82,6 +72,91 @@ public class ReportActivity extends AppCompatActivity implements
     @BindView(R.id.empty_view)
     public android.widget.TextView mEmptyStateTextView;
 
+    /**
+     * Section & author posting lists over the last loaded reports, null until the first load
+     */
+    private ReportFacetIndex mFacetIndex;
+
+    /**
+     * Active facet filters, null means the facet is not filtered
+     */
+    private String mSectionFilter;
+    private String mAuthorFilter;
+
+    /**
+     * Logs frame times of every scroll in debug builds, null in release builds
+     */
+    private FrameTimeMonitor mFrameTimeMonitor;
+
+    /**
+     * Opens reports in a warmed up Custom Tab
+     */
+    private ArticleLauncher mArticleLauncher;
+
+    /**
+     * Number of rows, from the first visible one, that are preloaded in the browser
+     */
+    private static final int LIKELY_ROW_COUNT = 3;
+
+    /**
+     * True once reportFullyDrawn() was called for the first reports shown
+     */
+    private boolean mFullyDrawnReported;
+
+    /**
+     * Polls for new reports while live mode is on and the activity is in the foreground
+     */
+    private LivePoller mLivePoller;
+    private boolean mLiveMode;
+    private boolean mStarted;
+
+    /**
+     * Near-duplicate clusters of the loaded reports, new reports from live mode join them
+     */
+    private ReportClusterIndex mClusterIndex;
+
+    /**
+     * Loader argument holding the URL of a date bounded search, see {@link #jumpToDate(String)}
+     */
+    private static final String ARG_URL = "url";
+
+    /**
+     * Search URL built from the preferences, the date bounded searches are derived from it
+     */
+    private String mSearchUrl;
+
+    /**
+     * Fills the gaps on both sides of a list that was positioned at a date, null otherwise.
+     * Live mode is paused until the list caught up with the newest reports, its polls would
+     * leave a gap above the pages filled in.
+     */
+    private TimelinePager mTimelinePager;
+
+    /**
+     * True once the user scrolled the list positioned at a date, newer pages are only loaded
+     * then and not for the layout pass that positioned the list
+     */
+    private boolean mUserScrolled;
+
+    /**
+     * webPublicationDate of the newest & oldest loaded report, collapsed ones included, null
+     * when none is loaded. Kept up to date as reports are loaded, inserted & appended, so the
+     * scroll listener never walks the list.
+     */
+    private String mNewestDate;
+    private String mOldestDate;
+
+    /**
+     * True from a jump to a date until its reports are shown, only then is the list positioned
+     * at the first row. A retained jump delivered again after a configuration change keeps the
+     * position the list restores.
+     */
+    private boolean mJumpPending;
+
+    /**
+     * Saved instance state key of {@link #mJumpPending}
+     */
+    private static final String STATE_JUMP_PENDING = "jump_pending";
 
 
     @Override
@@ -90,11 +165,18 @@ public class ReportActivity extends AppCompatActivity implements
         //      android.util.Log.i(LOG_TAG, "Test: Report Activity onCreate() called.");
 
         super.onCreate(savedInstanceState);
+        if (savedInstanceState != null) {
+            mJumpPending = savedInstanceState.getBoolean(STATE_JUMP_PENDING);
+        }
+        StartupTrace.phase("ReportActivity.setContentView");
         setContentView(R.layout.report_activity);
 
         //in order for the ButterKnife annotations to work
+        StartupTrace.phase("ButterKnife.bind");
         ButterKnife.bind(this);
 
+        StartupTrace.phase("ReportActivity.setAdapter");
+
         // If there is no report data to be displayed, mEmptyStateTextView is called to action
         reportListView.setEmptyView(mEmptyStateTextView);
 
@@ -105,60 +187,118 @@ public class ReportActivity extends AppCompatActivity implements
         // so the list can be populated in the user interface
         reportListView.setAdapter(mAdapter);
 
-        // Set an item click listener on the ListView, which sends an intent to a web browser
-        // to open a website with more information about the selected report.
-        reportListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                // Find the current report that was clicked on
-                Report currentReport = mAdapter.getItem(position);
+        // The browser is resolved and warmed up once the first frame is drawn
+        mArticleLauncher = new ArticleLauncher(this);
 
-                // Convert the String URL into a URI object (to pass into the Intent constructor)
-                Uri reportUri = Uri.parse(currentReport.getUrl());
+        mLivePoller = new LivePoller(new LivePoller.Listener() {
+            @Override
+            public String getNewestPublicationDate() {
+                return newestPublicationDate();
+            }
 
-                // Create a new intent to view the report URI
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, reportUri);
+            @Override
+            public void onNewReports(List<Report> reports) {
+                insertNewReports(reports);
+            }
+        });
 
-                //  Verify the websiteIntent will resolve and the app will not crash by lack of a browser
-                PackageManager packageManager = getPackageManager();
-                List<ResolveInfo> activities = packageManager.queryIntentActivities(websiteIntent, 0);
-                boolean isIntentSafe = activities.size() > 0;
+        // Bind only a title skeleton while the list flings and complete the visible rows
+        // once scrolling settles
+        reportListView.setOnScrollListener(new android.widget.AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(android.widget.AbsListView view, int scrollState) {
+                mAdapter.setFastScrolling(scrollState == SCROLL_STATE_FLING, view);
+                if (scrollState != SCROLL_STATE_IDLE) {
+                    mUserScrolled = true;
+                }
+                if (scrollState == SCROLL_STATE_IDLE) {
+                    // The user stopped scrolling, the rows now on screen are the likely taps
+                    preloadLikelyReports();
+                }
+                if (mFrameTimeMonitor != null) {
+                    if (scrollState == SCROLL_STATE_IDLE) {
+                        mFrameTimeMonitor.stop();
+                        mAdapter.logBindTime();
+                    } else {
+                        mFrameTimeMonitor.start();
+                    }
+                }
+            }
 
-                // Start an activity if it´s safe
-                if (isIntentSafe) {
-                    startActivity(websiteIntent);
+            @Override
+            public void onScroll(android.widget.AbsListView view, int firstVisibleItem,
+                                 int visibleItemCount, int totalItemCount) {
+                // After a jump to a date, load the neighbouring pages once an edge comes near
+                if (mTimelinePager == null || totalItemCount == 0) {
+                    return;
+                }
+                if (firstVisibleItem == 0 && mUserScrolled) {
+                    mTimelinePager.loadNewer(mNewestDate);
+                }
+                if (firstVisibleItem + visibleItemCount >= totalItemCount - 2) {
+                    mTimelinePager.loadOlder(mOldestDate);
                 }
-                // Send the intent to launch a new activity
-                startActivity(websiteIntent);
             }
         });
 
-        // Get a reference to the ConnectivityManager to check state of network connectivity
-        android.net.ConnectivityManager connMgr = (android.net.ConnectivityManager)
-                getSystemService(android.content.Context.CONNECTIVITY_SERVICE);
+        // Set an item click listener on the ListView, which sends an intent to a web browser
+        // to open a website with more information about the selected report.
+        reportListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
 
-        // Get details on the currently active default data network
-        android.net.NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
+                // Find the current report that was clicked on
+                Report currentReport = mAdapter.getItem(position);
 
-        // If there is a network connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
+                // Open the report in the browser that was resolved and warmed up at startup
+                mArticleLauncher.launch(ReportActivity.this, currentReport.getUrl());
+            }
+        });
 
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface).
-            loaderManager.initLoader(REPORT_LOADER_ID, null, this);
-        } else {
-            // Otherwise, display error
-            // First, hide loading indicator so error message will be visible
-            View loadingIndicator = findViewById(R.id.loading_indicator);
-            loadingIndicator.setVisibility(View.GONE);
+        // Get a reference to the LoaderManager, in order to interact with loaders.
+        StartupTrace.phase("ReportActivity.initLoader");
+        LoaderManager loaderManager = getLoaderManager();
+
+        // Initialize the loader. Pass in the int ID constant defined above and pass in null for
+        // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
+        // because this activity implements the LoaderCallbacks interface).
+        // The loader checks the network connection on its background thread.
+        loaderManager.initLoader(loaderManager.getLoader(JUMP_LOADER_ID) != null
+                ? JUMP_LOADER_ID : REPORT_LOADER_ID, null, this);
+        StartupTrace.phase("first frame");
+
+        // Work that is not needed for the first frame runs right after it is drawn
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(
+                new android.view.ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        // Posted from the pre-draw pass, so it runs once the frame is drawn
+                        decorView.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                StartupTrace.firstFrame();
+                                onFirstFrameDrawn();
+                            }
+                        });
+                        return true;
+                    }
+                });
+    }
 
-            // Update empty state with no connection error message
-            mEmptyStateTextView.setText(R.string.no_internet_connection);
+    /**
+     * Initialization that is deferred until the first frame is drawn.
+     */
+    private void onFirstFrameDrawn() {
+        if (isDestroyed()) {
+            return;
         }
+        // Resolve the browser once and warm it up before the first tap
+        mArticleLauncher.bind();
 
+        if (BuildConfig.DEBUG) {
+            mFrameTimeMonitor = new FrameTimeMonitor(getWindowManager().getDefaultDisplay().getRefreshRate());
+        }
     }
 
 
@@ -166,36 +306,15 @@ public class ReportActivity extends AppCompatActivity implements
     public Loader<java.util.List<Report>> onCreateLoader(int i, Bundle bundle) {
         //      Log for testing purposes
         //      android.util.Log.i(LOG_TAG, "Test: Report Activity onCreateLoader() called.");
-        android.content.SharedPreferences sharedPrefs = android.preference.PreferenceManager.getDefaultSharedPreferences(this);
-
-        // getString retrieves a String value from the preferences. The second param is the default
-        // value for this preference.
-        String searchTags = sharedPrefs.getString(
-                getString(R.string.settings_tags_key),
-                getString(R.string.settings_tags_default));
-
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
-
-        // parse breaks apart the URI string that's passed into its params.
-        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
-        // buildUpon prepares the baseUri that we just parsed so we can add query params tot it.
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        // Append query params & value
-        uriBuilder.appendQueryParameter("order-by", orderBy);
-        uriBuilder.appendQueryParameter("q", "\"" + searchTags + "\"");
-        uriBuilder.appendQueryParameter("show-references", "author");
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("page-size", "20");
-        uriBuilder.appendQueryParameter("api-key", "7e4455a6-290a-4b45-bd8d-05345b2027ed");
-
 
+        // A jump to a date loads a date bounded search
+        if (bundle != null && bundle.containsKey(ARG_URL)) {
+            return new ReportLoader(this, bundle.getString(ARG_URL));
+        }
 
-        // Create a new loader for the given URL
-        return new ReportLoader(this, uriBuilder.toString());
+        // The loader reads the search preferences on its background thread, so the disk read
+        // does not delay the first frame
+        return new ReportLoader(this);
     }
 
     // The onLoadFinished() is needed for updating the dataset in the adapter
@@ -208,27 +327,393 @@ public class ReportActivity extends AppCompatActivity implements
         // Clear the adapter of previous report data
         mAdapter.clear();
 
+        // True when these reports were loaded to position the list at a date
+        boolean jumped = loader.getId() == JUMP_LOADER_ID;
+
+        // Hide loading indicator because the loader has finished
+        View loadingIndicator = findViewById(R.id.loading_indicator);
+        loadingIndicator.setVisibility(View.GONE);
+
+        // Without a network connection the loader could at most deliver the last snapshot
+        boolean offline = loader instanceof ReportLoader && ((ReportLoader) loader).isOffline();
+
         // If there is a valid list of {@link Report}s, then add them to the adapter's
         // data set. This will trigger the ListView to update.
         if (reports != null && !reports.isEmpty()) {
             //        android.util.Log function for testing purposes
             //        android.util.Log.i(LOG_TAG, "Test: Report Activity onLoadFinished() if empty called.");
 
-            // Hide loading indicator because the data has been loaded
-            View loadingIndicator = findViewById(R.id.loading_indicator);
-            loadingIndicator.setVisibility(View.GONE);
-
             // Set empty state text to display "No reports found."
             mEmptyStateTextView.setText(R.string.no_reports);
 
-            // Clear the adapter of previous report data
-            mAdapter.clear();
+            // Live mode polls for reports newer than these
+            if (loader instanceof ReportLoader) {
+                if (!jumped) {
+                    mSearchUrl = ((ReportLoader) loader).getUrl();
+                    mTimelinePager = null;
+                } else {
+                    // After a configuration change only the date bounded search is known, the
+                    // other date bounded searches can be derived from it as well
+                    if (mSearchUrl == null) {
+                        mSearchUrl = ((ReportLoader) loader).getUrl();
+                    }
+                    // The list is positioned at the day, its neighbours are loaded on scroll
+                    mUserScrolled = false;
+                    mTimelinePager = new TimelinePager(mSearchUrl, new TimelinePager.Listener() {
+                        @Override
+                        public void onNewerReports(List<Report> reports) {
+                            insertNewerReports(reports);
+                        }
+
+                        @Override
+                        public void onOlderReports(List<Report> reports) {
+                            appendOlderReports(reports);
+                        }
+
+                        @Override
+                        public void onNewestReached() {
+                            // Nothing is left between the list and now, live mode may resume
+                            updateLivePoller();
+                        }
+                    });
+                }
+                mLivePoller.setBaseUrl(mSearchUrl);
+                updateLivePoller();
+                mClusterIndex = ((ReportLoader) loader).getClusterIndex();
+            } else {
+                mClusterIndex = new ReportClusterIndex();
+                mClusterIndex.addAll(reports);
+            }
+            mAdapter.setClusterIndex(mClusterIndex);
+
+            // Live mode & the timeline pages continue from the newest & oldest report
+            mNewestDate = null;
+            mOldestDate = null;
+            for (Report representative : reports) {
+                extendDateRange(representative);
+                if (mClusterIndex.getSimilarCount(representative) > 0) {
+                    for (Report similar : mClusterIndex.getSimilar(representative)) {
+                        extendDateRange(similar);
+                    }
+                }
+            }
+
+            // Index sections & contributors so the list can be filtered without a new query,
+            // the stories collapsed into a row included
+            mFacetIndex = new ReportFacetIndex(reports, mClusterIndex);
+
+            // Lay the titles out on a background thread before the rows are bound
+            mAdapter.prepareTextLayouts(reports, reportListView);
+
+            // Fill the adapter with the new report data that passes the active filters
+            applyFacetFilter();
+            if (jumped && mJumpPending) {
+                // The newest report of the day is the first row
+                mJumpPending = false;
+                reportListView.setSelection(0);
+            }
+
+            // The first reports are shown, this ends the cold start
+            if (!mFullyDrawnReported) {
+                mFullyDrawnReported = true;
+                StartupTrace.firstContent();
+                reportFullyDrawn();
+            }
+        } else {
+            mFacetIndex = null;
+            mNewestDate = null;
+            mOldestDate = null;
+
+            // Update empty state with no connection error message, or "No reports found."
+            mEmptyStateTextView.setText(offline ? R.string.no_internet_connection : R.string.no_reports);
+        }
+    }
+
+    /**
+     * Preloads the first visible rows in the browser, the top row being the most likely tap.
+     */
+    private void preloadLikelyReports() {
+        int first = reportListView.getFirstVisiblePosition();
+        int last = Math.min(reportListView.getLastVisiblePosition(), first + LIKELY_ROW_COUNT - 1);
+        List<String> urls = new ArrayList<>();
+        for (int position = first; position <= last && position < mAdapter.getCount(); position++) {
+            urls.add(mAdapter.getItem(position).getUrl());
+        }
+        mArticleLauncher.mayLaunchUrls(urls);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mStarted = true;
+        updateLivePoller();
+    }
+
+    /**
+     * Polls while live mode is on and the activity is in the foreground, unless the list is
+     * positioned at a date and newer pages are still to be loaded.
+     */
+    private void updateLivePoller() {
+        if (mLiveMode && mStarted && (mTimelinePager == null || mTimelinePager.isNewestReached())) {
+            mLivePoller.start();
+        } else {
+            mLivePoller.stop();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        // Live mode only polls while the app is in the foreground
+        mStarted = false;
+        mLivePoller.stop();
+        super.onStop();
+    }
+
+    /**
+     * Returns the webPublicationDate of the newest loaded report, null when none is loaded.
+     */
+    private String newestPublicationDate() {
+        return mNewestDate;
+    }
+
+    /**
+     * Widens the range of loaded publication dates to include the report.
+     */
+    private void extendDateRange(Report report) {
+        // ISO 8601 timestamps in UTC compare chronologically as strings
+        String date = report.getDateOfPublication();
+        if (mNewestDate == null || date.compareTo(mNewestDate) > 0) {
+            mNewestDate = date;
+        }
+        if (mOldestDate == null || date.compareTo(mOldestDate) < 0) {
+            mOldestDate = date;
+        }
+    }
+
+    /**
+     * Appends reports that are older than the oldest one shown at the bottom of the list.
+     */
+    private void appendOlderReports(List<Report> olderReports) {
+        if (mFacetIndex == null || mClusterIndex == null) {
+            return;
+        }
+        List<Report> representatives = new ArrayList<>();
+        for (Report report : olderReports) {
+            Report representative = mClusterIndex.add(report);
+            if (representative != null) {
+                extendDateRange(report);
+            }
+            if (representative == report) {
+                representatives.add(report);
+            }
+        }
+        List<Report> reports = new ArrayList<>(mFacetIndex.getReports());
+        reports.addAll(representatives);
+        mFacetIndex = new ReportFacetIndex(reports, mClusterIndex);
+        mAdapter.prepareTextLayouts(representatives, reportListView);
+        mAdapter.addAll(new ReportFacetIndex(representatives, mClusterIndex)
+                .filter(mSectionFilter, mAuthorFilter));
+    }
+
+    /**
+     * Asks for a day and positions the list at it.
+     */
+    private void showJumpToDateDialog() {
+        java.util.Calendar calendar = java.util.Calendar.getInstance();
+        new android.app.DatePickerDialog(this, new android.app.DatePickerDialog.OnDateSetListener() {
+            @Override
+            public void onDateSet(android.widget.DatePicker view, int year, int month, int dayOfMonth) {
+                jumpToDate(String.format(java.util.Locale.ROOT, "%04d-%02d-%02d", year, month + 1, dayOfMonth));
+            }
+        }, calendar.get(java.util.Calendar.YEAR), calendar.get(java.util.Calendar.MONTH),
+                calendar.get(java.util.Calendar.DAY_OF_MONTH)).show();
+    }
+
+    /**
+     * Positions the list at the newest report published on or before the day. When the day is
+     * within the loaded reports the list scrolls there, otherwise the reports up to that day are
+     * loaded with one date bounded search.
+     *
+     * @param day as "yyyy-MM-dd"
+     */
+    private void jumpToDate(String day) {
+        List<Report> shown = new ArrayList<>(mAdapter.getCount());
+        for (int position = 0; position < mAdapter.getCount(); position++) {
+            shown.add(mAdapter.getItem(position));
+        }
+        int position = new TimelineIndex(shown).positionOf(day);
+        if (position >= 0) {
+            reportListView.setSelection(position);
+            return;
+        }
+        if (mSearchUrl == null) {
+            return;
+        }
+
+        findViewById(R.id.loading_indicator).setVisibility(View.VISIBLE);
+        Bundle args = new Bundle();
+        args.putString(ARG_URL, QueryUtils.buildDateBoundedUrl(mSearchUrl, "newest", null, day));
+        // Only the jump is restored after a configuration change
+        getLoaderManager().destroyLoader(REPORT_LOADER_ID);
+        mJumpPending = true;
+        getLoaderManager().restartLoader(JUMP_LOADER_ID, args, this);
+    }
+
+    /**
+     * Inserts reports that arrived in live mode at the top of the list. The rows on screen stay
+     * where they are and keep their bound views, unless the list was scrolled to the very top.
+     */
+    private void insertNewReports(List<Report> newReports) {
+        insertReports(newReports, false);
+    }
+
+    /**
+     * Inserts the newer neighbours of a date the list was positioned at above the rows on
+     * screen. The rows on screen always stay where they are, even at the very top, so the list
+     * does not drift away from the date.
+     */
+    private void insertNewerReports(List<Report> newerReports) {
+        insertReports(newerReports, true);
+    }
+
+    private void insertReports(List<Report> newReports, boolean keepPosition) {
+        if (mFacetIndex == null || mClusterIndex == null) {
+            return;
+        }
+
+        // Reports that join the cluster of a shown report only update the count of its row
+        List<Report> representatives = new ArrayList<>();
+        for (Report report : newReports) {
+            Report representative = mClusterIndex.add(report);
+            if (representative != null) {
+                extendDateRange(report);
+            }
+            if (representative == report) {
+                representatives.add(report);
+            }
+        }
+        List<Report> reports = new ArrayList<>(representatives);
+        reports.addAll(mFacetIndex.getReports());
+        mFacetIndex = new ReportFacetIndex(reports, mClusterIndex);
+        mAdapter.prepareTextLayouts(newReports, reportListView);
+
+        List<Report> shown = new ReportFacetIndex(representatives, mClusterIndex)
+                .filter(mSectionFilter, mAuthorFilter);
+        if (shown.isEmpty()) {
+            mAdapter.notifyDataSetChanged();
+            return;
+        }
+
+        // Keep the first visible row at its place on screen
+        int firstPosition = reportListView.getFirstVisiblePosition();
+        View firstRow = reportListView.getChildAt(0);
+        int top = firstRow == null ? 0 : firstRow.getTop();
+
+        mAdapter.setNotifyOnChange(false);
+        for (int i = shown.size() - 1; i >= 0; i--) {
+            mAdapter.insert(shown.get(i), 0);
+        }
+        mAdapter.notifyDataSetChanged();
 
-            // Fill the adapter with new report data
-            mAdapter.addAll(reports);
+        if (keepPosition || firstPosition > 0 || top < 0) {
+            reportListView.setSelectionFromTop(firstPosition + shown.size(), top);
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_JUMP_PENDING, mJumpPending);
+    }
+
+    /**
+     * Adds the share of the search responses the reports used to the activity dump, so it can
+     * be followed in any build with "adb shell dumpsys activity eu.id2go.news2go".
+     */
+    @Override
+    public void dump(String prefix, java.io.FileDescriptor fd, java.io.PrintWriter writer,
+                     String[] args) {
+        super.dump(prefix, fd, writer, args);
+        long requestedChars = QueryPlanner.getRequestedChars();
+        long usedChars = QueryPlanner.getUsedChars();
+        writer.println(prefix + "Search responses: " + requestedChars + " chars requested, "
+                + usedChars + " used" + (requestedChars > 0
+                ? " (" + usedChars * 100 / requestedChars + "%)" : ""));
+    }
+
+    @Override
+    protected void onDestroy() {
+        mArticleLauncher.unbind();
+        super.onDestroy();
+    }
+
+    /**
+     * Replaces the adapter data set with the indexed reports that pass the active facet filters.
+     */
+    private void applyFacetFilter() {
+        mAdapter.collapseAll();
+        mAdapter.clear();
+        if (mFacetIndex != null) {
+            mAdapter.addAll(mFacetIndex.filter(mSectionFilter, mAuthorFilter));
+
+            // Preload the top rows once they are laid out
+            reportListView.post(new Runnable() {
+                @Override
+                public void run() {
+                    preloadLikelyReports();
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows the sections, or the contributors, with their report count and filters the list on
+     * the one that is picked. Counts respect the filter that is active on the other facet.
+     *
+     * @param bySection true to pick a section, false to pick a contributor
+     */
+    private void showFacetDialog(final boolean bySection) {
+        if (mFacetIndex == null) {
+            return;
+        }
+        java.util.Map<String, Integer> facets = bySection
+                ? mFacetIndex.getSectionCounts() : mFacetIndex.getAuthorCounts();
+
+        final List<String> keys = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        keys.add(null);
+        labels.add(getString(R.string.facet_label, getString(R.string.filter_all),
+                bySection ? mFacetIndex.count(null, mAuthorFilter)
+                        : mFacetIndex.count(mSectionFilter, null)));
+        for (String key : facets.keySet()) {
+            int count = bySection ? mFacetIndex.count(key, mAuthorFilter)
+                    : mFacetIndex.count(mSectionFilter, key);
+            if (count == 0) {
+                continue;
+            }
+            keys.add(key);
+            labels.add(getString(R.string.facet_label,
+                    bySection ? mFacetIndex.getSectionName(key) : mFacetIndex.getAuthorName(key),
+                    count));
+        }
+
+        new android.support.v7.app.AlertDialog.Builder(this)
+                .setTitle(bySection ? R.string.filter_section_menu_item : R.string.filter_author_menu_item)
+                .setItems(labels.toArray(new CharSequence[labels.size()]),
+                        new android.content.DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(android.content.DialogInterface dialog, int which) {
+                                if (bySection) {
+                                    mSectionFilter = keys.get(which);
+                                } else {
+                                    mAuthorFilter = keys.get(which);
+                                }
+                                applyFacetFilter();
+                            }
+                        })
+                .show();
+    }
+
     // The onLoaderReset() is needed for when the data from our loader is no longer valid and
     // the adapters data set needs to be reset
     @Override
@@ -237,6 +722,11 @@ public class ReportActivity extends AppCompatActivity implements
         //        android.util.Log.i(LOG_TAG, "Test: Report Activity onLoaderReset() called.");
 
         // Loader reset, so we can clear out existing data.
+        mFacetIndex = null;
+        mNewestDate = null;
+        mOldestDate = null;
+        mClusterIndex = null;
+        mAdapter.setClusterIndex(null);
         mAdapter.clear();
     }
 
@@ -254,6 +744,24 @@ public class ReportActivity extends AppCompatActivity implements
             startActivity(settingsIntent);
             return true;
         }
+        if (id == R.id.action_live) {
+            mLiveMode = !item.isChecked();
+            item.setChecked(mLiveMode);
+            updateLivePoller();
+            return true;
+        }
+        if (id == R.id.action_jump_to_date) {
+            showJumpToDateDialog();
+            return true;
+        }
+        if (id == R.id.action_filter_section) {
+            showFacetDialog(true);
+            return true;
+        }
+        if (id == R.id.action_filter_author) {
+            showFacetDialog(false);
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 }
@@ -19,10 +19,14 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
 import android.widget.TextView;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * An {@link ReportAdapter} knows how to create a list item layout for each report
@@ -33,6 +37,37 @@ import java.util.List;
  */
 public class ReportAdapter extends ArrayAdapter<Report> {
 
+    /**
+     * True while the list is flinging, rows are then bound as a title-only skeleton
+     */
+    private boolean mFastScrolling;
+
+    /**
+     * Title layouts prepared off the UI thread
+     */
+    private final ReportTextLayouts mTextLayouts;
+
+    /**
+     * Horizontal space of the title in a row, the list width minus the row margins
+     */
+    private int mTitleWidth;
+
+    /**
+     * Near-duplicate clusters of the reports, null when the reports are not clustered
+     */
+    private ReportClusterIndex mClusterIndex;
+
+    /**
+     * Representatives whose similar reports are shown below them
+     */
+    private final Set<Report> mExpanded = Collections.newSetFromMap(new IdentityHashMap<Report, Boolean>());
+
+    /**
+     * Time spent in getView() since the last {@link #logBindTime()}, debug builds only
+     */
+    private long mBindNanos;
+    private int mBindCount;
+
     /**
      * Constructs a new {@link ReportAdapter}.
      *
@@ -41,6 +76,163 @@ public class ReportAdapter extends ArrayAdapter<Report> {
      */
     public ReportAdapter(Context context, List<Report> reports) {
         super(context, 0, reports);
+        mTextLayouts = new ReportTextLayouts(context);
+    }
+
+    /**
+     * Prepares the title layouts of the reports on a background thread, once the width of the
+     * list is known. Reports delivered before the list was laid out, i.e. by a loader that is
+     * retained over a configuration change, are prepared right after its first layout pass.
+     *
+     * @param listView is the list the rows are shown in
+     */
+    public void prepareTextLayouts(final List<Report> reports, View listView) {
+        if (listView.getWidth() > 0) {
+            prepareTextLayouts(reports, listView.getWidth());
+            return;
+        }
+        listView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View view, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                if (right - left > 0) {
+                    view.removeOnLayoutChangeListener(this);
+                    prepareTextLayouts(reports, right - left);
+                }
+            }
+        });
+    }
+
+    private void prepareTextLayouts(List<Report> reports, int listWidth) {
+        mTitleWidth = titleWidthOf(listWidth);
+        mTextLayouts.prepare(reports, mTitleWidth);
+    }
+
+    private int titleWidthOf(int listWidth) {
+        int margins = 2 * getContext().getResources().getDimensionPixelSize(R.dimen.padding_16dp);
+        return Math.max(0, listWidth - margins);
+    }
+
+    /**
+     * Sets the near-duplicate clusters of the reports, the data set then holds representatives
+     * that can be expanded to show their similar reports.
+     */
+    public void setClusterIndex(ReportClusterIndex clusterIndex) {
+        mClusterIndex = clusterIndex;
+        mExpanded.clear();
+    }
+
+    /**
+     * Hides the similar reports of every expanded representative.
+     */
+    public void collapseAll() {
+        if (mExpanded.isEmpty()) {
+            return;
+        }
+        setNotifyOnChange(false);
+        for (Report representative : mExpanded) {
+            for (Report similar : mClusterIndex.getSimilar(representative)) {
+                remove(similar);
+            }
+        }
+        mExpanded.clear();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Shows or hides the similar reports of a representative right below its row.
+     */
+    private void toggleSimilar(Report representative) {
+        int position = getPosition(representative);
+        if (mClusterIndex == null || position < 0) {
+            return;
+        }
+        List<Report> similarReports = mClusterIndex.getSimilar(representative);
+        setNotifyOnChange(false);
+        if (mExpanded.remove(representative)) {
+            for (Report similar : similarReports) {
+                remove(similar);
+            }
+        } else {
+            mExpanded.add(representative);
+            for (int i = 0; i < similarReports.size(); i++) {
+                insert(similarReports.get(i), position + 1 + i);
+            }
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Logs the average time per bind since the last call, debug builds only.
+     */
+    public void logBindTime() {
+        if (BuildConfig.DEBUG && mBindCount > 0) {
+            android.util.Log.d(ReportAdapter.class.getName(), mBindCount + " binds, "
+                    + mBindNanos / mBindCount / 1000 + " us per bind");
+        }
+        mBindNanos = 0;
+        mBindCount = 0;
+    }
+
+    /**
+     * Holds the views of a list item, so they are only looked up once per inflated row.
+     */
+    private static class ViewHolder {
+        TextView firstNameView;
+        TextView lastNameView;
+        StaticLayoutView articleView;
+        TextView sectionView;
+        TextView dateView;
+        TextView timeView;
+        TextView similarView;
+
+        /**
+         * Report whose fields are all bound to the views, null while only the skeleton is bound
+         */
+        Report boundReport;
+
+        /**
+         * Number of similar reports & expanded state the similar view was bound with
+         */
+        int boundSimilarCount;
+        boolean boundExpanded;
+
+        ViewHolder(View listItemView) {
+            firstNameView = listItemView.findViewById(R.id.first_name);
+            lastNameView = listItemView.findViewById(R.id.last_name);
+            articleView = listItemView.findViewById(R.id.article);
+            sectionView = listItemView.findViewById(R.id.section);
+            dateView = listItemView.findViewById(R.id.date);
+            timeView = listItemView.findViewById(R.id.time);
+            similarView = listItemView.findViewById(R.id.similar);
+        }
+    }
+
+    /**
+     * Switches between skeleton binding (while flinging) and full binding. When scrolling
+     * settles, the rows that are on screen with only their skeleton are completed.
+     *
+     * @param fastScrolling true while the list is flinging
+     * @param listView      is the list this adapter is set on
+     */
+    public void setFastScrolling(boolean fastScrolling, AbsListView listView) {
+        mFastScrolling = fastScrolling;
+        if (fastScrolling) {
+            return;
+        }
+
+        int firstPosition = listView.getFirstVisiblePosition();
+        for (int i = 0; i < listView.getChildCount(); i++) {
+            View listItemView = listView.getChildAt(i);
+            int position = firstPosition + i;
+            if (position < getCount() && listItemView.getTag() instanceof ViewHolder) {
+                ViewHolder holder = (ViewHolder) listItemView.getTag();
+                Report report = getItem(position);
+                if (holder.boundReport != report) {
+                    bindDetails(holder, report);
+                }
+            }
+        }
     }
 
     /**
@@ -49,91 +241,171 @@ public class ReportAdapter extends ArrayAdapter<Report> {
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
+        long start = BuildConfig.DEBUG ? System.nanoTime() : 0;
         // Check if there is an existing list item view (called convertView) that can be reused,
         // otherwise, if convertView is null, then inflate a new list item layout.
         View listItemView = convertView;
+        ViewHolder holder;
 
         if (listItemView == null) {
             listItemView = LayoutInflater.from(getContext()).inflate(
                     R.layout.report_list_item, parent, false);
+            final ViewHolder newHolder = new ViewHolder(listItemView);
+            newHolder.similarView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    if (newHolder.boundReport != null) {
+                        toggleSimilar(newHolder.boundReport);
+                    }
+                }
+            });
+            holder = newHolder;
+            listItemView.setTag(holder);
+        } else {
+            holder = (ViewHolder) listItemView.getTag();
         }
 
         // Find the report at the given position in the list of reports
         Report currentReport = getItem(position);
 
-
-        // Bind the data of the report object to the views in the list_item layout based
-        // on the view_id's
-
-        // Find the TextView with view ID author
-        TextView firstNameView = listItemView.findViewById(R.id.first_name);
-        // Format the authorName to display
-        if (currentReport.getFirstName().isEmpty()) {
-            firstNameView.setVisibility(View.GONE);
-        } else {
-            firstNameView.setText(currentReport.getFirstName());
-            firstNameView.setVisibility(View.VISIBLE);
+        if (mTitleWidth == 0) {
+            mTitleWidth = titleWidthOf(parent.getWidth());
         }
 
-        // Find the TextView with view ID author
-        TextView lastNameView = listItemView.findViewById(R.id.last_name);
-        // Format the authorName to display
-        if (currentReport.getLastName().isEmpty()) {
-            lastNameView.setVisibility(View.GONE);
-        } else {
-            lastNameView.setText(currentReport.getLastName());
-            lastNameView.setVisibility(View.VISIBLE);
+        // The recycled row may still show this very report, nothing to bind then
+        if (!isBoundTo(holder.boundReport, holder.boundSimilarCount, holder.boundExpanded,
+                currentReport, mClusterIndex, mExpanded)) {
+            if (mFastScrolling) {
+                bindSkeleton(holder, currentReport);
+            } else {
+                bindDetails(holder, currentReport);
+            }
+            if (mTitleWidth == 0) {
+                // Measured before the list had a width, bind the row again once it has one
+                holder.boundReport = null;
+            }
         }
 
-        // Find the TextView with view ID article
-        TextView articleView = listItemView.findViewById(R.id.article);
-        // Format the articleTitle to display
-        if (currentReport.getArticleTitle().isEmpty()) {
-            articleView.setVisibility(View.GONE);
-        } else {
-            articleView.setText(currentReport.getArticleTitle());
-            articleView.setVisibility(View.VISIBLE);
+        if (BuildConfig.DEBUG) {
+            mBindNanos += System.nanoTime() - start;
+            mBindCount++;
         }
 
-        // Find the TextView with view ID section
-        TextView sectionView = listItemView.findViewById(R.id.section);
-        // Format the articleTitle to display
-        if (currentReport.getArticleSection().isEmpty()) {
-            sectionView.setVisibility(View.GONE);
-        } else {
-            sectionView.setText(currentReport.getArticleSection());
-            sectionView.setVisibility(View.VISIBLE);
+        // Return the list item view that is now showing the appropriate data
+        return listItemView;
+    }
+
+    /**
+     * Binds only the title of the report and hides the other fields. Switching between VISIBLE
+     * and INVISIBLE keeps the row height, so no layout pass is needed.
+     */
+    private void bindSkeleton(ViewHolder holder, Report currentReport) {
+        holder.boundReport = null;
+        bindTitle(holder.articleView, currentReport);
+        hideIfShown(holder.firstNameView);
+        hideIfShown(holder.lastNameView);
+        hideIfShown(holder.sectionView);
+        hideIfShown(holder.dateView);
+        hideIfShown(holder.timeView);
+        hideIfShown(holder.similarView);
+    }
+
+    private static void hideIfShown(TextView view) {
+        if (view.getVisibility() == View.VISIBLE) {
+            view.setVisibility(View.INVISIBLE);
         }
+    }
 
-        // Create a new dateTime object from the time in regular time & date format in the
-        // JSONreport
+    /**
+     * Binds the data of the report object to the views in the list_item layout.
+     */
+    private void bindDetails(ViewHolder holder, Report currentReport) {
+        holder.boundReport = currentReport;
 
-        String dateTime = currentReport.getDateOfPublication();
-        String[] dateAndTime = formatDateAndTime(dateTime);
+        // Format the authorName to display
+        bindOrHide(holder.firstNameView, currentReport.getFirstName());
+        bindOrHide(holder.lastNameView, currentReport.getLastName());
 
-        // Find the TextView with view ID date
-        TextView dateView = listItemView.findViewById(R.id.date);
-        // Set Array entry to position 0
-        dateView.setText(dateAndTime[0]);
+        // Attach the prepared title layout
+        bindTitle(holder.articleView, currentReport);
 
-        // Find the TextView with view ID time
-        TextView timeView = listItemView.findViewById(R.id.time);
-        // Set Array entry to position 1
-        timeView.setText(dateAndTime[1]);
+        // Format the articleSection to display
+        bindOrHide(holder.sectionView, currentReport.getArticleSection());
 
-        // Return the list item view that is now showing the appropriate data
-        return listItemView;
+        // Date & time were split when the report was built on the loader thread
+        holder.dateView.setText(currentReport.getDisplayDate());
+        holder.dateView.setVisibility(View.VISIBLE);
+        holder.timeView.setText(currentReport.getDisplayTime());
+        holder.timeView.setVisibility(View.VISIBLE);
+
+        bindSimilar(holder, currentReport);
     }
 
+    /**
+     * Returns true when a row that was bound with the given state still shows the report as it
+     * is now: the same report, with the same number of similar reports and expanded state. A
+     * live update that joins a cluster changes the count. getView() asks this for every row it
+     * returns, so it must not allocate; AllocationBudgetTest runs it on the JVM.
+     *
+     * @param boundReport is the report the row was fully bound to, null for a skeleton or a new row
+     */
+    static boolean isBoundTo(Report boundReport, int boundSimilarCount, boolean boundExpanded,
+                             Report report, ReportClusterIndex clusterIndex, Set<Report> expanded) {
+        if (boundReport != report) {
+            return false;
+        }
+        return clusterIndex == null
+                || (boundSimilarCount == clusterIndex.getSimilarCount(report)
+                && boundExpanded == expanded.contains(report));
+    }
+
+    /**
+     * Shows the number of similar reports of a representative, or hides the view when there are
+     * none.
+     */
+    private void bindSimilar(ViewHolder holder, Report currentReport) {
+        int count = mClusterIndex == null ? 0 : mClusterIndex.getSimilarCount(currentReport);
+        boolean expanded = mExpanded.contains(currentReport);
+        holder.boundSimilarCount = count;
+        holder.boundExpanded = expanded;
+        if (count == 0) {
+            holder.similarView.setVisibility(View.GONE);
+            return;
+        }
+        if (expanded) {
+            holder.similarView.setText(R.string.hide_similar_stories);
+        } else {
+            holder.similarView.setText(getContext().getResources().getQuantityString(
+                    R.plurals.similar_stories, count, count));
+        }
+        holder.similarView.setVisibility(View.VISIBLE);
+    }
 
     /**
-     * Return the formatted date string (i.e. "Mar 3, 1984") from a Date object.
+     * Attaches the prepared title layout of the report, or removes the view from the row when
+     * the report has no title.
      */
-    private String[] formatDateAndTime(String dateTime) {
-        String[] dateAndTimeSplit = dateTime.replace("T", " ").replace("Z", " ").trim().split
-                (" ");
+    private void bindTitle(StaticLayoutView articleView, Report currentReport) {
+        if (currentReport.getArticleTitle().isEmpty() || mTitleWidth == 0) {
+            articleView.setVisibility(View.GONE);
+        } else {
+            articleView.setLayout(mTextLayouts.getTitleLayout(currentReport, mTitleWidth),
+                    currentReport.getArticleTitle(),
+                    ReportTextLayouts.TITLE_MAX_LINES);
+            articleView.setVisibility(View.VISIBLE);
+        }
+    }
 
-        return dateAndTimeSplit;
+    /**
+     * Shows the text in the view, or removes the view from the row when there is no text.
+     */
+    private static void bindOrHide(TextView view, String text) {
+        if (text.isEmpty()) {
+            view.setVisibility(View.GONE);
+        } else {
+            view.setText(text);
+            view.setVisibility(View.VISIBLE);
+        }
     }
 
 }
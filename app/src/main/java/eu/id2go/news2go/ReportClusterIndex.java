@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ReportClusterIndex} groups reports with near-identical titles, like live blogs and
+ * their follow-ups. Every title gets a 64 bit SimHash fingerprint; titles whose fingerprints
+ * differ in at most {@link #MAX_DISTANCE} bits belong to the same cluster.
+ * <p>
+ * The fingerprints are kept in a locality sensitive index of MAX_DISTANCE + 1 tables, each keyed
+ * by one band of 12 or 13 bits of the fingerprint. Two fingerprints within {@link #MAX_DISTANCE}
+ * bits are equal in at least one band, so a report is only compared with the reports sharing one
+ * of its band buckets instead of with every stored report. A bucket still grows with the number
+ * of stored reports, by about one report per 4096, so a lookup is cheap for the few thousand
+ * reports of a list but not constant time.
+ */
+public class ReportClusterIndex {
+
+    /**
+     * Largest number of differing fingerprint bits between titles of one cluster
+     */
+    public static final int MAX_DISTANCE = 4;
+
+    /**
+     * Number of bands the fingerprint is split into, must be larger than MAX_DISTANCE
+     */
+    private static final int BANDS = MAX_DISTANCE + 1;
+
+    /**
+     * Words that carry no meaning in a headline, including the words live blogs and their
+     * wrap-ups add to a title ("... - live", "... - as it happened")
+     */
+    private static final String[] STOP_WORDS = {
+            "a", "an", "and", "as", "at", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "the", "to", "with", "live", "latest", "updates", "happened", "news"};
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Sorted word hashes of the stop words, a title word is looked up by its hash
+     */
+    private static final long[] STOP_WORD_HASHES = new long[STOP_WORDS.length];
+
+    static {
+        for (int i = 0; i < STOP_WORDS.length; i++) {
+            STOP_WORD_HASHES[i] = hash(STOP_WORDS[i], 0, STOP_WORDS[i].length(), FNV_OFFSET_BASIS);
+        }
+        Arrays.sort(STOP_WORD_HASHES);
+    }
+
+    /**
+     * Cluster representatives per band bucket, the key holds the band number & band value
+     */
+    private final Map<Long, List<Report>> mBuckets = new HashMap<>();
+
+    /**
+     * Fingerprint of every representative
+     */
+    private final Map<Report, Long> mFingerprints = new IdentityHashMap<>();
+
+    /**
+     * Other members of every cluster, keyed by its representative
+     */
+    private final Map<Report, List<Report>> mSimilar = new IdentityHashMap<>();
+
+    /**
+     * URLs of all added reports, the same report is never added twice
+     */
+    private final Set<String> mUrls = new HashSet<>();
+
+    /**
+     * Adds the reports in order and returns the representatives of their clusters, which is the
+     * first report added to every cluster.
+     */
+    public List<Report> addAll(List<Report> reports) {
+        List<Report> representatives = new ArrayList<>();
+        for (Report report : reports) {
+            Report representative = add(report);
+            if (representative == report) {
+                representatives.add(report);
+            }
+        }
+        return representatives;
+    }
+
+    /**
+     * Adds a report to the cluster of a similar stored report, or starts a new cluster.
+     *
+     * @return the representative of the cluster the report was added to, the report itself when
+     * it starts a new cluster, or null when a report with the same URL was added before
+     */
+    public Report add(Report report) {
+        if (!mUrls.add(report.getUrl())) {
+            return null;
+        }
+        long fingerprint = fingerprint(report.getArticleTitle());
+
+        for (int band = 0; band < BANDS; band++) {
+            List<Report> bucket = mBuckets.get(bucketKey(band, fingerprint));
+            if (bucket == null) {
+                continue;
+            }
+            for (Report candidate : bucket) {
+                if (Long.bitCount(mFingerprints.get(candidate) ^ fingerprint) <= MAX_DISTANCE) {
+                    mSimilar.get(candidate).add(report);
+                    return candidate;
+                }
+            }
+        }
+
+        addRepresentative(report, fingerprint);
+        return report;
+    }
+
+    /**
+     * Restores the clusters stored with a snapshot into this empty index and returns their
+     * representatives in order, as {@link #addAll(List)} of the snapshot would, without hashing
+     * a single title. The reports are read from the snapshot, which decodes them.
+     *
+     * @throws IllegalStateException when reports were added to the index before
+     */
+    public List<Report> restore(ReportSnapshot snapshot) {
+        if (!mUrls.isEmpty()) {
+            throw new IllegalStateException("Clusters can only be restored into an empty index");
+        }
+        List<Report> representatives = new ArrayList<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            int representative = snapshot.getRepresentativePosition(i);
+            // Left out as a duplicate URL when the snapshot was written
+            if (representative < 0) {
+                continue;
+            }
+            Report report = snapshot.get(i);
+            if (!mUrls.add(report.getUrl())) {
+                continue;
+            }
+            List<Report> similar = representative < i ? mSimilar.get(snapshot.get(representative)) : null;
+            if (similar != null) {
+                similar.add(report);
+            } else {
+                // A representative, or a member of a cluster the snapshot does not hold
+                addRepresentative(report, representative == i
+                        ? snapshot.getFingerprint(i) : fingerprint(report.getArticleTitle()));
+                representatives.add(report);
+            }
+        }
+        return representatives;
+    }
+
+    private void addRepresentative(Report report, long fingerprint) {
+        mFingerprints.put(report, fingerprint);
+        mSimilar.put(report, new ArrayList<Report>());
+        for (int band = 0; band < BANDS; band++) {
+            long key = bucketKey(band, fingerprint);
+            List<Report> bucket = mBuckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>(1);
+                mBuckets.put(key, bucket);
+            }
+            bucket.add(report);
+        }
+    }
+
+    /**
+     * Returns true when the report is the representative of a cluster, i.e. the first report
+     * added to it.
+     */
+    public boolean isRepresentative(Report report) {
+        return mFingerprints.containsKey(report);
+    }
+
+    /**
+     * Returns the fingerprint of the title of a representative, see {@link #fingerprint(String)}.
+     *
+     * @throws IllegalArgumentException when the report is not a representative
+     */
+    public long getFingerprint(Report representative) {
+        Long fingerprint = mFingerprints.get(representative);
+        if (fingerprint == null) {
+            throw new IllegalArgumentException("Not a cluster representative");
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the other members of the cluster of a representative, empty for any other report.
+     */
+    public List<Report> getSimilar(Report representative) {
+        List<Report> similar = mSimilar.get(representative);
+        return similar == null ? Collections.<Report>emptyList() : Collections.unmodifiableList(similar);
+    }
+
+    /**
+     * Returns the number of other members of the cluster of a representative, 0 for any other
+     * report. Unlike {@link #getSimilar(Report)} this allocates nothing, so rows can check it on
+     * every bind.
+     */
+    public int getSimilarCount(Report representative) {
+        List<Report> similar = mSimilar.get(representative);
+        return similar == null ? 0 : similar.size();
+    }
+
+    private static long bucketKey(int band, long fingerprint) {
+        int from = band * 64 / BANDS;
+        int to = (band + 1) * 64 / BANDS;
+        long bandValue = (fingerprint >>> from) & ((1L << (to - from)) - 1);
+        return ((long) band << 32) | bandValue;
+    }
+
+    /**
+     * Returns the 64 bit SimHash of a title over its lower case words and word pairs, stop words
+     * left out. The words are hashed in place, so a title costs no strings.
+     */
+    public static long fingerprint(String title) {
+        int[] weights = new int[64];
+        long previousHash = 0;
+        boolean hasPrevious = false;
+        int start = -1;
+        for (int i = 0; i <= title.length(); i++) {
+            boolean letterOrDigit = i < title.length() && Character.isLetterOrDigit(title.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                long wordHash = hash(title, start, i, FNV_OFFSET_BASIS);
+                if (Arrays.binarySearch(STOP_WORD_HASHES, wordHash) < 0) {
+                    addFeature(weights, wordHash);
+                    if (hasPrevious) {
+                        addFeature(weights, hash(title, start, i, previousHash));
+                    }
+                    previousHash = wordHash;
+                    hasPrevious = true;
+                }
+                start = -1;
+            }
+        }
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void addFeature(int[] weights, long featureHash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((featureHash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the lower case characters from start to end, continuing from the
+     * given hash.
+     */
+    private static long hash(CharSequence text, int start, int end, long hash) {
+        for (int i = start; i < end; i++) {
+            hash ^= Character.toLowerCase(text.charAt(i));
+            hash *= FNV_PRIME;
+        }
+        // Separate consecutive words of a pair
+        hash ^= ' ';
+        hash *= FNV_PRIME;
+        return hash;
+    }
+}
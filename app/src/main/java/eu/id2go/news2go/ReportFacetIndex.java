@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link ReportFacetIndex} keeps a posting list (a {@link BitSet} over the positions of the
+ * stored reports) for every section and every contributor tag. Filtering and counting by section
+ * or author is then a couple of bit operations on the device instead of a new GUARDIAN query.
+ * <p>
+ * The list only shows the representative of every near-duplicate cluster, but the stories that
+ * were collapsed into it are indexed as well: counts include them, and a row is kept by a filter
+ * when any story of its cluster matches.
+ */
+public class ReportFacetIndex {
+
+    /**
+     * The rows of the list, i.e. the cluster representatives, in the order they were indexed
+     */
+    private final List<Report> mReports;
+
+    /**
+     * Every indexed story, each representative followed by the stories of its cluster. The
+     * posting lists point into it.
+     */
+    private final List<Report> mStories;
+
+    /**
+     * Position in mReports of the row every story is shown in
+     */
+    private final int[] mRowOfStory;
+
+    /**
+     * Posting list per section ID
+     */
+    private final Map<String, BitSet> mSections = new HashMap<>();
+
+    /**
+     * Display name per section ID, i.e. "culture" -> "Culture"
+     */
+    private final Map<String, String> mSectionNames = new HashMap<>();
+
+    /**
+     * Posting list per contributor tag ID, so contributors with the same name stay apart
+     */
+    private final Map<String, BitSet> mAuthors = new HashMap<>();
+
+    /**
+     * Full name per contributor tag ID, i.e. "profile/jane-doe" -> "Jane Doe"
+     */
+    private final Map<String, String> mAuthorNames = new HashMap<>();
+
+    /**
+     * Constructs a new {@link ReportFacetIndex} over the given reports, every report its own row.
+     *
+     * @param reports is the list of reports to index
+     */
+    public ReportFacetIndex(List<Report> reports) {
+        this(reports, null);
+    }
+
+    /**
+     * Constructs a new {@link ReportFacetIndex} over the given cluster representatives and the
+     * stories of their clusters.
+     *
+     * @param representatives is the list of rows to index
+     * @param clusterIndex    holds the stories collapsed into every row, null when none are
+     */
+    public ReportFacetIndex(List<Report> representatives, ReportClusterIndex clusterIndex) {
+        mReports = new ArrayList<>(representatives);
+        int storyCount = mReports.size();
+        for (int row = 0; clusterIndex != null && row < mReports.size(); row++) {
+            storyCount += clusterIndex.getSimilarCount(mReports.get(row));
+        }
+        mStories = new ArrayList<>(storyCount);
+        mRowOfStory = new int[storyCount];
+        for (int row = 0; row < mReports.size(); row++) {
+            Report representative = mReports.get(row);
+            mRowOfStory[mStories.size()] = row;
+            mStories.add(representative);
+            if (clusterIndex != null && clusterIndex.getSimilarCount(representative) > 0) {
+                for (Report similar : clusterIndex.getSimilar(representative)) {
+                    mRowOfStory[mStories.size()] = row;
+                    mStories.add(similar);
+                }
+            }
+        }
+
+        for (int i = 0; i < mStories.size(); i++) {
+            Report report = mStories.get(i);
+
+            // Reports parsed without a section ID fall back to their section name
+            String sectionId = sectionKeyOf(report);
+            if (!sectionId.isEmpty()) {
+                postingsOf(mSections, sectionId).set(i);
+                if (!mSectionNames.containsKey(sectionId)) {
+                    mSectionNames.put(sectionId, report.getArticleSection());
+                }
+            }
+
+            List<String> authorIds = report.getContributorIds();
+            for (int a = 0; a < authorIds.size(); a++) {
+                postingsOf(mAuthors, authorIds.get(a)).set(i);
+                if (!mAuthorNames.containsKey(authorIds.get(a))) {
+                    mAuthorNames.put(authorIds.get(a), report.getContributors().get(a));
+                }
+            }
+        }
+    }
+
+    private static String sectionKeyOf(Report report) {
+        String sectionId = report.getSectionId();
+        return sectionId.isEmpty() ? report.getArticleSection() : sectionId;
+    }
+
+    private static BitSet postingsOf(Map<String, BitSet> facet, String key) {
+        BitSet postings = facet.get(key);
+        if (postings == null) {
+            postings = new BitSet();
+            facet.put(key, postings);
+        }
+        return postings;
+    }
+
+    /**
+     * Returns all indexed rows in their indexed order.
+     */
+    public List<Report> getReports() {
+        return Collections.unmodifiableList(mReports);
+    }
+
+    /**
+     * Returns the number of indexed rows.
+     */
+    public int size() {
+        return mReports.size();
+    }
+
+    /**
+     * Returns the display name of a section ID, or the ID itself if it is unknown.
+     */
+    public String getSectionName(String sectionId) {
+        String name = mSectionNames.get(sectionId);
+        return name == null || name.isEmpty() ? sectionId : name;
+    }
+
+    /**
+     * Returns the full name of a contributor tag ID, or the ID itself if it is unknown.
+     */
+    public String getAuthorName(String authorId) {
+        String name = mAuthorNames.get(authorId);
+        return name == null ? authorId : name;
+    }
+
+    /**
+     * Returns the number of stories per section ID, the largest section first.
+     */
+    public Map<String, Integer> getSectionCounts() {
+        return countsOf(mSections);
+    }
+
+    /**
+     * Returns the number of stories per contributor tag ID, the most prolific contributor first.
+     */
+    public Map<String, Integer> getAuthorCounts() {
+        return countsOf(mAuthors);
+    }
+
+    private static Map<String, Integer> countsOf(Map<String, BitSet> facet) {
+        List<Map.Entry<String, BitSet>> entries = new ArrayList<>(facet.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, BitSet>>() {
+            @Override
+            public int compare(Map.Entry<String, BitSet> a, Map.Entry<String, BitSet> b) {
+                int byCount = b.getValue().cardinality() - a.getValue().cardinality();
+                return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+            }
+        });
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> entry : entries) {
+            counts.put(entry.getKey(), entry.getValue().cardinality());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the positions of the stories that match both filters, in the order of the rows
+     * with the stories of every cluster after its representative.
+     *
+     * @param sectionId is the section to keep, or null for every section
+     * @param author    is the tag ID of the contributor to keep, or null for every contributor
+     */
+    public BitSet match(String sectionId, String author) {
+        BitSet result = new BitSet(mStories.size());
+        result.set(0, mStories.size());
+        if (sectionId != null) {
+            intersect(result, mSections.get(sectionId));
+        }
+        if (author != null) {
+            intersect(result, mAuthors.get(author));
+        }
+        return result;
+    }
+
+    private static void intersect(BitSet result, BitSet postings) {
+        if (postings == null) {
+            result.clear();
+        } else {
+            result.and(postings);
+        }
+    }
+
+    /**
+     * Returns the number of stories that match both filters, see {@link #match(String, String)}.
+     */
+    public int count(String sectionId, String author) {
+        return match(sectionId, author).cardinality();
+    }
+
+    /**
+     * Returns the rows with at least one story that matches both filters in their indexed order,
+     * see {@link #match(String, String)}.
+     */
+    public List<Report> filter(String sectionId, String author) {
+        BitSet matches = match(sectionId, author);
+        List<Report> reports = new ArrayList<>();
+        int lastRow = -1;
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            // The stories of a cluster follow each other, so a row is only added once
+            if (mRowOfStory[i] != lastRow) {
+                lastRow = mRowOfStory[i];
+                reports.add(mReports.get(lastRow));
+            }
+        }
+        return reports;
+    }
+}
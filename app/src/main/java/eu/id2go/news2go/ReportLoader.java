@@ -2,9 +2,11 @@ package eu.id2go.news2go;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.net.Uri;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 
+import java.io.File;
 import java.util.List;
 
 //      Define the ReportLoader class, extend AsyncTaskLoader and specify List as the generic parameter.
@@ -25,11 +27,97 @@ public class ReportLoader extends AsyncTaskLoader<List<Report>> {
      */
     private static final String LOG_TAG = ReportLoader.class.getName();
 
+    // Tags based api: q = finance, france, love, fairytails, books, films, music, science_fiction,
+    // non_fiction, romance, countries, etc.& order-by parameter should be 'newest' (default), 'oldest' or 'relevance'
+    // https://content.guardianapis.com/tags?q=finance&api-key=test
+    // Reference based api:q = author, contributor, books
+    // Sections based api : opinion, news, politics, culture, science, lifeandstyle,
+    // https://content.guardianapis.com/sections?q=culture&api-key=test
+    // api-key=test, test must be replaced by a free developer key!
     /**
-     * Query URL
+     * URL for report data from the GUARDIAN dataset
+     */
+    private static final String GUARDIAN_REQUEST_URL = "http://content.guardianapis.com/search?";
+
+    /**
+     * Snapshot files of the query results in the cache directory, "reports-<URL hash>.snapshot"
+     */
+    private static final String SNAPSHOT_PREFIX = "reports-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * Number of snapshot files kept, the least recently written ones are deleted
+     */
+    private static final int MAX_SNAPSHOT_FILES = 4;
+
+    /**
+     * Age up to which a snapshot is served instead of searching again, live mode keeps the list
+     * up to date from there
+     */
+    private static final long SNAPSHOT_MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Query URL, built from the search preferences when it is not given
      */
     private String mUrl;
 
+    /**
+     * True when the URL is built from the search preferences, a change of them reloads
+     */
+    private final boolean mFromPreferences;
+
+    /**
+     * True when the preferences changed since the URL was built from them
+     */
+    private volatile boolean mPreferencesChanged;
+
+    /**
+     * Reports of the last load, delivered again when the loader is started again instead of
+     * loading them anew, i.e. when the activity comes back from a Custom Tab
+     */
+    private List<Report> mReports;
+
+    /**
+     * Marks the content as changed when the search preferences change, kept in a field because
+     * the preferences only keep a weak reference to it
+     */
+    private final android.content.SharedPreferences.OnSharedPreferenceChangeListener mPreferenceListener =
+            new android.content.SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(android.content.SharedPreferences preferences, String key) {
+                    mPreferencesChanged = true;
+                    onContentChanged();
+                }
+            };
+    private boolean mWatchingPreferences;
+
+    /**
+     * True when the last load found no network connection
+     */
+    private volatile boolean mOffline;
+
+    /**
+     * Near-duplicate clusters of the reports of the last load
+     */
+    private volatile ReportClusterIndex mClusterIndex;
+
+    /**
+     * Parsed reports per query URL, shared by all loaders. Cheap to rebuild from the snapshot
+     * files, so it is among the first caches to be shed.
+     */
+    private static final MemoryCache<String, List<Report>> sResultsCache = new MemoryCache<>(
+            "parsed results", CacheRegistry.PRIORITY_LOW,
+            new MemoryCache.Sizer<String, List<Report>>() {
+                @Override
+                public long sizeOf(String url, List<Report> reports) {
+                    long bytes = 40 + 2L * url.length();
+                    for (Report report : reports) {
+                        bytes += report.estimateByteCost();
+                    }
+                    return bytes;
+                }
+            }, CacheRegistry.getInstance());
+
     /**
      * Constructs a new {@link ReportLoader}.
      *
@@ -39,6 +127,40 @@ public class ReportLoader extends AsyncTaskLoader<List<Report>> {
     public ReportLoader(Context context, String url) {
         super(context);
         mUrl = url;
+        mFromPreferences = url == null;
+    }
+
+    /**
+     * Constructs a new {@link ReportLoader} that searches with the search preferences of the user.
+     * The preferences are read on the background thread.
+     *
+     * @param context of the activity
+     */
+    public ReportLoader(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Returns the search URL of the last load, null before the first load.
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Returns the near-duplicate clusters of the last load, the loaded list only holds the
+     * representative of every cluster.
+     */
+    public ReportClusterIndex getClusterIndex() {
+        return mClusterIndex;
+    }
+
+    /**
+     * Returns true when the last load found no network connection, its reports then come from
+     * the last results of the query, if any.
+     */
+    public boolean isOffline() {
+        return mOffline;
     }
 
     @Override
@@ -46,7 +168,43 @@ public class ReportLoader extends AsyncTaskLoader<List<Report>> {
 //        Log for testing purposes
 //        android.util.Log.i(LOG_TAG, "Test: Report Loader onStartLoading() called.");
 
-        forceLoad();
+        if (mFromPreferences && !mWatchingPreferences) {
+            android.preference.PreferenceManager.getDefaultSharedPreferences(getContext())
+                    .registerOnSharedPreferenceChangeListener(mPreferenceListener);
+            mWatchingPreferences = true;
+        }
+
+        // Hand the last reports back, so the list and everything loaded into it since stay
+        if (mReports != null) {
+            deliverResult(mReports);
+        }
+        if (takeContentChanged() || mReports == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    public void deliverResult(List<Report> reports) {
+        mReports = reports;
+        if (isStarted()) {
+            super.deliverResult(reports);
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mReports = null;
+        if (mWatchingPreferences) {
+            android.preference.PreferenceManager.getDefaultSharedPreferences(getContext())
+                    .unregisterOnSharedPreferenceChangeListener(mPreferenceListener);
+            mWatchingPreferences = false;
+        }
     }
 
     /**
@@ -57,12 +215,143 @@ public class ReportLoader extends AsyncTaskLoader<List<Report>> {
 //        Log for testing purposes
 //        android.util.Log.i(LOG_TAG, "Test: Report Loader loadInBackground() called.");
 
-        if (mUrl == null) {
+        if (mUrl == null || mPreferencesChanged) {
+            mPreferencesChanged = false;
+            mUrl = buildSearchUrl();
+        }
+
+        // A snapshot that was written moments ago, i.e. by the last load before the app was
+        // closed, is served as it is: no request, no JSON parse and no clustering
+        File snapshotFile = getSnapshotFile();
+        ReportClusterIndex clusterIndex = new ReportClusterIndex();
+        if (System.currentTimeMillis() - snapshotFile.lastModified() < SNAPSHOT_MAX_AGE_MILLIS) {
+            List<Report> representatives = restoreSnapshot(snapshotFile, clusterIndex);
+            if (representatives != null) {
+                mOffline = false;
+                mClusterIndex = clusterIndex;
+                return representatives;
+            }
+        }
+
+        // Get a reference to the ConnectivityManager to check state of network connectivity
+        android.net.ConnectivityManager connMgr = (android.net.ConnectivityManager)
+                getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        // Get details on the currently active default data network
+        android.net.NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        mOffline = networkInfo == null || !networkInfo.isConnected();
+
+        // If there is a network connection, perform the network request, parse the response,
+        // and extract a list of reports.
+        List<Report> reports = mOffline ? null : QueryUtils.fetchReportData(mUrl);
+
+        // Keep the parsed reports in memory and as a snapshot, or fall back to the last results
+        // of this query when the request did not deliver any reports. Near-identical stories
+        // are collapsed into the first report of their cluster
+        List<Report> representatives = reports;
+        if (reports != null && !reports.isEmpty()) {
+            sResultsCache.put(mUrl, reports);
+            representatives = clusterIndex.addAll(reports);
+            writeSnapshot(snapshotFile, reports, clusterIndex);
+        } else if (sResultsCache.get(mUrl) != null) {
+            representatives = clusterIndex.addAll(sResultsCache.get(mUrl));
+        } else if (snapshotFile.exists()) {
+            representatives = restoreSnapshot(snapshotFile, clusterIndex);
+        }
+        mClusterIndex = clusterIndex;
+        return representatives;
+    }
+
+    /**
+     * Reads a snapshot and restores the clusters stored with it, returns their representatives
+     * or null when the snapshot can not be read.
+     */
+    private static List<Report> restoreSnapshot(File snapshotFile, ReportClusterIndex clusterIndex) {
+        try {
+            return clusterIndex.restore(ReportSnapshot.open(snapshotFile));
+        } catch (java.io.IOException e) {
+            android.util.Log.e(LOG_TAG, "Problem reading the report snapshot " + snapshotFile, e);
             return null;
         }
+    }
+
+    /**
+     * Writes the reports & their clusters to a snapshot and deletes the least recently written
+     * snapshots beyond {@link #MAX_SNAPSHOT_FILES}, every date bounded search writes its own.
+     */
+    private static void writeSnapshot(File snapshotFile, List<Report> reports,
+                                      ReportClusterIndex clusterIndex) {
+        try {
+            ReportSnapshot.write(snapshotFile, reports, clusterIndex);
+        } catch (java.io.IOException e) {
+            android.util.Log.e(LOG_TAG, "Problem writing the report snapshot " + snapshotFile, e);
+        }
+
+        File[] snapshotFiles = snapshotFile.getParentFile().listFiles(new java.io.FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }
+        });
+        if (snapshotFiles == null || snapshotFiles.length <= MAX_SNAPSHOT_FILES) {
+            return;
+        }
+        java.util.Arrays.sort(snapshotFiles, new java.util.Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                // The most recently written first
+                return Long.compare(b.lastModified(), a.lastModified());
+            }
+        });
+        for (int i = MAX_SNAPSHOT_FILES; i < snapshotFiles.length; i++) {
+            if (!snapshotFiles[i].equals(snapshotFile)) {
+                snapshotFiles[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Builds the search URL from the tags & order-by preferences.
+     */
+    private String buildSearchUrl() {
+        Context context = getContext();
+        android.content.SharedPreferences sharedPrefs = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
+
+        // getString retrieves a String value from the preferences. The second param is the default
+        // value for this preference.
+        String searchTags = sharedPrefs.getString(
+                context.getString(R.string.settings_tags_key),
+                context.getString(R.string.settings_tags_default));
+
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
 
-        // Perform the network request, parse the response, and extract a list of reports.
-        List<Report> reports = QueryUtils.fetchReportData(mUrl);
-        return reports;
+        // parse breaks apart the URI string that's passed into its params.
+        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
+        // buildUpon prepares the baseUri that we just parsed so we can add query params tot it.
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        // Append query params & value
+        uriBuilder.appendQueryParameter("order-by", orderBy);
+        uriBuilder.appendQueryParameter("q", "\"" + searchTags + "\"");
+        // Ask only for what the consumers of the list need, the live & timeline queries derived
+        // from this URL keep its show parameters
+        QueryPlanner.appendShowParameters(uriBuilder, QueryPlanner.merge(
+                QueryPlanner.CONSUMER_LIST_ROW, QueryPlanner.CONSUMER_READER,
+                QueryPlanner.CONSUMER_SEARCH, QueryPlanner.CONSUMER_SYNC));
+        uriBuilder.appendQueryParameter("page-size", "20");
+        uriBuilder.appendQueryParameter("api-key", "7e4455a6-290a-4b45-bd8d-05345b2027ed");
+
+        return uriBuilder.toString();
+    }
+
+    /**
+     * Returns the snapshot file of the query URL in the cache directory of the app.
+     */
+    private File getSnapshotFile() {
+        return new File(getContext().getCacheDir(),
+                SNAPSHOT_PREFIX + Integer.toHexString(mUrl.hashCode()) + SNAPSHOT_SUFFIX);
     }
 }
\ No newline at end of file
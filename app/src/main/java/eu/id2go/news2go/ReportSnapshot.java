@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A {@link ReportSnapshot} is a list of {@link Report}s read from a compact binary file, so parsed
+ * results can be reloaded without going through the GUARDIAN JSON again. The file is memory
+ * mapped and every row & string is decoded at most once, straight from the mapped bytes.
+ * <p>
+ * Every record also keeps the near-duplicate cluster it was put in, i.e. the position of the
+ * representative of its cluster, and the SimHash fingerprint of every representative, so
+ * {@link ReportClusterIndex#restore(ReportSnapshot)} brings the clusters back without hashing a
+ * title. The app still reads the rows on the loader thread, so the main thread only ever sees
+ * decoded reports. What the snapshot saves is the request, the JSON parse & the clustering.
+ * <p>
+ * Layout of version 3, all numbers big endian:
+ * <pre>
+ * header   int magic, int version, int reportCount, int stringCount
+ * records  reportCount x (FIELD_COUNT string table indexes, int representative position,
+ *          long fingerprint), the position is -1 for a report left out as a duplicate URL
+ * offsets  (stringCount + 1) ints, byte offset of every string in the string data
+ * strings  UTF-8 bytes of all distinct strings, back to back
+ * </pre>
+ */
+public class ReportSnapshot extends AbstractList<Report> implements RandomAccess {
+
+    private static final int MAGIC = 0x4e32474f; // "N2GO"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 * 4;
+
+    /**
+     * firstName, lastName, contributors, contributorIds, articleTitle, sectionId, sectionTitle,
+     * dateOfPublication & url
+     */
+    private static final int FIELD_COUNT = 9;
+
+    /**
+     * Offsets in a record of the representative position & the fingerprint after the fields
+     */
+    private static final int REPRESENTATIVE_OFFSET = FIELD_COUNT * 4;
+    private static final int FINGERPRINT_OFFSET = REPRESENTATIVE_OFFSET + 4;
+    private static final int RECORD_SIZE = FINGERPRINT_OFFSET + 8;
+
+    /**
+     * Separates the contributor names & IDs, which are stored as one string each
+     */
+    private static final char CONTRIBUTOR_SEPARATOR = '\u001f';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+    private final int mOffsetsStart;
+    private final int mStringsStart;
+
+    /**
+     * Rows and strings decoded so far, every one is decoded once
+     */
+    private final Report[] mReports;
+    private final String[] mStrings;
+
+    private ReportSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a report snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported report snapshot version " + buffer.getInt(4));
+        }
+        mBuffer = buffer;
+        mSize = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        mOffsetsStart = HEADER_SIZE + mSize * RECORD_SIZE;
+        mStringsStart = mOffsetsStart + (stringCount + 1) * 4;
+        if (mSize < 0 || stringCount < 0 || mStringsStart > buffer.limit()
+                || mStringsStart + buffer.getInt(mOffsetsStart + stringCount * 4) > buffer.limit()) {
+            throw new IOException("Truncated report snapshot");
+        }
+        mReports = new Report[mSize];
+        mStrings = new String[stringCount];
+    }
+
+    /**
+     * Maps a snapshot file into memory. Only the header is read here, rows are decoded as they
+     * are read.
+     *
+     * @param file written by {@link #write(File, List)}
+     * @throws IOException if the file can not be read or is not a valid snapshot
+     */
+    public static ReportSnapshot open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ReportSnapshot(buffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot from bytes held in memory, see {@link #toBytes(List)}.
+     */
+    public static ReportSnapshot wrap(byte[] bytes) throws IOException {
+        return new ReportSnapshot(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Clusters the reports and writes them to a snapshot file, see
+     * {@link #write(File, List, ReportClusterIndex)}.
+     */
+    public static void write(File file, List<Report> reports) throws IOException {
+        write(file, reports, clusterIndexOf(reports));
+    }
+
+    /**
+     * Writes the reports and their clusters to a snapshot file. The file is replaced atomically,
+     * so a reader never sees a half written snapshot.
+     *
+     * @param clusterIndex holds exactly the given reports, added in their order
+     */
+    public static void write(File file, List<Report> reports, ReportClusterIndex clusterIndex)
+            throws IOException {
+        byte[] bytes = toBytes(reports, clusterIndex);
+        File tempFile = new File(file.getPath() + ".tmp");
+        RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw");
+        try {
+            randomAccessFile.setLength(0);
+            randomAccessFile.write(bytes);
+        } finally {
+            randomAccessFile.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not replace report snapshot " + file);
+        }
+    }
+
+    /**
+     * Clusters the reports and encodes them in the snapshot format, see
+     * {@link #toBytes(List, ReportClusterIndex)}.
+     */
+    public static byte[] toBytes(List<Report> reports) {
+        return toBytes(reports, clusterIndexOf(reports));
+    }
+
+    private static ReportClusterIndex clusterIndexOf(List<Report> reports) {
+        ReportClusterIndex clusterIndex = new ReportClusterIndex();
+        clusterIndex.addAll(reports);
+        return clusterIndex;
+    }
+
+    /**
+     * Encodes the reports and their clusters in the snapshot format. Equal strings, like section
+     * names, are stored only once.
+     *
+     * @param clusterIndex holds exactly the given reports, added in their order
+     */
+    public static byte[] toBytes(List<Report> reports, ReportClusterIndex clusterIndex) {
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] records = new int[reports.size() * FIELD_COUNT];
+
+        // Reports that are in no cluster were left out as duplicates
+        Map<Report, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < reports.size(); i++) {
+            positions.put(reports.get(i), i);
+        }
+        int[] representatives = new int[reports.size()];
+        Arrays.fill(representatives, -1);
+        long[] fingerprints = new long[reports.size()];
+        for (int i = 0; i < reports.size(); i++) {
+            Report report = reports.get(i);
+            if (!clusterIndex.isRepresentative(report)) {
+                continue;
+            }
+            representatives[i] = i;
+            fingerprints[i] = clusterIndex.getFingerprint(report);
+            for (Report similar : clusterIndex.getSimilar(report)) {
+                Integer position = positions.get(similar);
+                if (position != null) {
+                    representatives[position] = i;
+                }
+            }
+        }
+
+        int field = 0;
+        for (Report report : reports) {
+            records[field++] = indexOf(report.getFirstName(), stringIndex, strings);
+            records[field++] = indexOf(report.getLastName(), stringIndex, strings);
+            records[field++] = indexOf(joinContributors(report.getContributors()), stringIndex, strings);
+            records[field++] = indexOf(joinContributors(report.getContributorIds()), stringIndex, strings);
+            records[field++] = indexOf(report.getArticleTitle(), stringIndex, strings);
+            records[field++] = indexOf(report.getSectionId(), stringIndex, strings);
+            records[field++] = indexOf(report.getArticleSection(), stringIndex, strings);
+            records[field++] = indexOf(report.getDateOfPublication(), stringIndex, strings);
+            records[field++] = indexOf(report.getUrl(), stringIndex, strings);
+        }
+
+        int stringBytes = 0;
+        for (byte[] string : strings) {
+            stringBytes += string.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + reports.size() * RECORD_SIZE
+                + (strings.size() + 1) * 4 + stringBytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(reports.size()).putInt(strings.size());
+        for (int i = 0; i < reports.size(); i++) {
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                buffer.putInt(records[i * FIELD_COUNT + f]);
+            }
+            buffer.putInt(representatives[i]);
+            buffer.putLong(fingerprints[i]);
+        }
+        int offset = 0;
+        for (byte[] string : strings) {
+            buffer.putInt(offset);
+            offset += string.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] string : strings) {
+            buffer.put(string);
+        }
+        return buffer.array();
+    }
+
+    private static int indexOf(String value, Map<String, Integer> stringIndex, List<byte[]> strings) {
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = strings.size();
+            stringIndex.put(value, index);
+            strings.add(value.getBytes(UTF_8));
+        }
+        return index;
+    }
+
+    private static String joinContributors(List<String> contributors) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < contributors.size(); i++) {
+            if (i > 0) {
+                joined.append(CONTRIBUTOR_SEPARATOR);
+            }
+            joined.append(contributors.get(i));
+        }
+        return joined.toString();
+    }
+
+    private static List<String> splitContributors(String joined) {
+        if (joined.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(joined.split(String.valueOf(CONTRIBUTOR_SEPARATOR)));
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the report at the given position, decoding it on first access.
+     */
+    @Override
+    public Report get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+        Report report = mReports[index];
+        if (report == null) {
+            int record = HEADER_SIZE + index * RECORD_SIZE;
+            report = new Report(
+                    string(record),
+                    string(record + 4),
+                    splitContributors(string(record + 8)),
+                    splitContributors(string(record + 12)),
+                    string(record + 16),
+                    string(record + 20),
+                    string(record + 24),
+                    string(record + 28),
+                    string(record + 32));
+            mReports[index] = report;
+        }
+        return report;
+    }
+
+    /**
+     * Returns the position of the representative of the cluster the report at the given position
+     * was put in, the position itself for a representative, or -1 for a report that was left out
+     * as a duplicate URL. Reads the record without decoding the report.
+     */
+    public int getRepresentativePosition(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+        return mBuffer.getInt(HEADER_SIZE + index * RECORD_SIZE + REPRESENTATIVE_OFFSET);
+    }
+
+    /**
+     * Returns the SimHash fingerprint of the title of the representative at the given position,
+     * see {@link ReportClusterIndex#fingerprint(String)}. Reads the record without decoding the
+     * report.
+     */
+    public long getFingerprint(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+        return mBuffer.getLong(HEADER_SIZE + index * RECORD_SIZE + FINGERPRINT_OFFSET);
+    }
+
+    /**
+     * Decodes the string that the int at the given position of the file points to.
+     */
+    private String string(int position) {
+        int index = mBuffer.getInt(position);
+        String string = mStrings[index];
+        if (string == null) {
+            int start = mBuffer.getInt(mOffsetsStart + index * 4);
+            int end = mBuffer.getInt(mOffsetsStart + (index + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            // Absolute reads through a duplicate keep the shared buffer position untouched
+            ByteBuffer slice = mBuffer.duplicate();
+            slice.position(mStringsStart + start);
+            slice.get(bytes);
+            string = new String(bytes, UTF_8);
+            mStrings[index] = string;
+        }
+        return string;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ReportTextLayouts} prepares the {@link StaticLayout} of every report title on a
+ * background thread as soon as the reports are parsed, so binding a row only attaches a ready
+ * layout to its {@link StaticLayoutView}. Layouts are cached per title and text width in a
+ * {@link MemoryCache}.
+ */
+public class ReportTextLayouts {
+
+    /**
+     * Number of lines of a title shown in a row
+     */
+    public static final int TITLE_MAX_LINES = 2;
+
+    /**
+     * Title layouts keyed by the title text itself. A headline that changes under the same URL,
+     * like a live blog, gets a new layout, and reports with the same title share one. A layout
+     * knows the width it was built for, so no key has to be built on every bind.
+     */
+    private static final MemoryCache<String, Layout> sLayoutCache = new MemoryCache<>(
+            "title layouts", CacheRegistry.PRIORITY_NORMAL,
+            new MemoryCache.Sizer<String, Layout>() {
+                @Override
+                public long sizeOf(String key, Layout layout) {
+                    // The layout keeps the text, which is the key, its line starts & directions
+                    return 128 + 2L * key.length() + 32L * layout.getLineCount();
+                }
+            }, CacheRegistry.getInstance());
+
+    /**
+     * Paint of the titles as styled in report_list_item
+     */
+    private final TextPaint mTitlePaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+
+    /**
+     * Constructs a new {@link ReportTextLayouts} with the title style of report_list_item.
+     */
+    public ReportTextLayouts(Context context) {
+        mTitlePaint.setTextSize(context.getResources().getDimension(R.dimen.text_size_medium));
+        mTitlePaint.setColor(ContextCompat.getColor(context, R.color.textColorReportArticle));
+        mTitlePaint.density = context.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * Prepares the title layouts of the reports for the given text width on a background thread.
+     */
+    public void prepare(List<Report> reports, final int width) {
+        if (width <= 0 || reports.isEmpty()) {
+            return;
+        }
+        final List<Report> pending = new ArrayList<>(reports);
+        // The background thread measures with its own copy of the paint
+        final TextPaint paint = new TextPaint(mTitlePaint);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Report report : pending) {
+                    getTitleLayout(report, width, paint);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the title layout of the report for the given text width, built on the calling
+     * thread when it was not prepared yet.
+     */
+    public Layout getTitleLayout(Report report, int width) {
+        return getTitleLayout(report, width, mTitlePaint);
+    }
+
+    /**
+     * Returns the prepared title layout of the report for the given text width, or null when it
+     * was not prepared yet or prepared for another width before the list was resized. Every row
+     * bind looks its title up, so this must not allocate; AllocationBudgetTest runs it on the JVM.
+     */
+    static Layout getCachedTitleLayout(Report report, int width) {
+        Layout layout = sLayoutCache.get(report.getArticleTitle());
+        return layout == null || layout.getWidth() != width ? null : layout;
+    }
+
+    private static Layout getTitleLayout(Report report, int width, TextPaint paint) {
+        Layout layout = getCachedTitleLayout(report, width);
+        if (layout == null) {
+            layout = buildLayout(report.getArticleTitle(), paint, width, TITLE_MAX_LINES);
+            sLayoutCache.put(report.getArticleTitle(), layout);
+        }
+        return layout;
+    }
+
+    private static Layout buildLayout(CharSequence text, TextPaint paint, int width, int maxLines) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                    .setMaxLines(maxLines)
+                    .setEllipsize(TextUtils.TruncateAt.END)
+                    .build();
+        }
+        // Before Marshmallow the public constructor only ellipsizes a single line, so the text of
+        // the last shown line is ellipsized to the width up front
+        StaticLayout full = new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL,
+                1f, 0f, true);
+        if (full.getLineCount() > maxLines) {
+            int lastLineStart = full.getLineStart(maxLines - 1);
+            text = TextUtils.concat(text.subSequence(0, lastLineStart), TextUtils.ellipsize(
+                    text.subSequence(lastLineStart, text.length()), paint, width,
+                    TextUtils.TruncateAt.END));
+        }
+        return new StaticLayout(text, 0, text.length(), paint, width,
+                Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true, TextUtils.TruncateAt.END, width);
+    }
+}
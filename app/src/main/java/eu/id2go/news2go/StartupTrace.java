@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+/**
+ * {@link StartupTrace} records the phases of a cold start, from the creation of the application
+ * up to the first frame and the first content, as systrace sections and as log lines.
+ * <p>
+ * Tracing is on in debug builds, in release builds it is switched on with
+ * <code>adb shell setprop log.tag.StartupTrace DEBUG</code>.
+ */
+public final class StartupTrace {
+
+    /**
+     * Tag for the startup log messages, also the tag that switches tracing on
+     */
+    private static final String LOG_TAG = "StartupTrace";
+
+    private static boolean sEnabled;
+    private static long sStartMillis;
+    private static String sPhase;
+    private static long sPhaseStartMillis;
+    private static boolean sFirstFrameDrawn;
+    private static boolean sFirstContentShown;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link StartupTrace} object.
+     */
+    private StartupTrace() {
+    }
+
+    /**
+     * Starts the trace, called first thing in Application.onCreate().
+     */
+    public static void start() {
+        sEnabled = BuildConfig.DEBUG || Log.isLoggable(LOG_TAG, Log.DEBUG);
+        sStartMillis = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Ends the running phase and begins the next one. Only called on the main thread.
+     */
+    public static void phase(String name) {
+        if (!sEnabled || sFirstContentShown) {
+            return;
+        }
+        endPhase();
+        sPhase = name;
+        sPhaseStartMillis = SystemClock.uptimeMillis();
+        Trace.beginSection(name);
+    }
+
+    /**
+     * Ends the running phase, if any.
+     */
+    public static void endPhase() {
+        if (!sEnabled || sPhase == null) {
+            return;
+        }
+        Trace.endSection();
+        long now = SystemClock.uptimeMillis();
+        Log.d(LOG_TAG, sPhase + ": " + (now - sPhaseStartMillis) + " ms (at " + (now - sStartMillis) + " ms)");
+        sPhase = null;
+    }
+
+    /**
+     * Records that the first frame of the launch activity was drawn.
+     */
+    public static void firstFrame() {
+        if (!sEnabled || sFirstFrameDrawn) {
+            return;
+        }
+        sFirstFrameDrawn = true;
+        endPhase();
+        Log.d(LOG_TAG, "First frame at " + (SystemClock.uptimeMillis() - sStartMillis) + " ms");
+    }
+
+    /**
+     * Records that the first reports are shown, which ends the trace.
+     */
+    public static void firstContent() {
+        if (!sEnabled || sFirstContentShown) {
+            return;
+        }
+        endPhase();
+        sFirstContentShown = true;
+        Log.d(LOG_TAG, "First content at " + (SystemClock.uptimeMillis() - sStartMillis) + " ms");
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * A {@link StaticLayoutView} draws a text {@link Layout} that was built beforehand, so binding a
+ * row does not measure or break any text on the UI thread. See {@link ReportTextLayouts}.
+ */
+public class StaticLayoutView extends View {
+
+    private Layout mLayout;
+
+    /**
+     * Full text of the layout, read out by accessibility services even when the layout cuts it
+     */
+    private CharSequence mText;
+
+    /**
+     * Number of lines of the layout that are shown, the rest is clipped
+     */
+    private int mShownLines;
+
+    public StaticLayoutView(Context context) {
+        super(context);
+    }
+
+    public StaticLayoutView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Shows the given layout, the row is only laid out again when the height changes.
+     *
+     * @param layout   is the prepared text, or null to show nothing
+     * @param text     is the full text of the layout, for accessibility services
+     * @param maxLines is the number of lines to show at most
+     */
+    public void setLayout(Layout layout, CharSequence text, int maxLines) {
+        mText = layout == null ? null : text;
+        if (layout == mLayout) {
+            return;
+        }
+        int oldHeight = textHeight();
+        mLayout = layout;
+        mShownLines = layout == null ? 0 : Math.min(layout.getLineCount(), maxLines);
+        if (textHeight() != oldHeight) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * Returns the layout that is shown, null when there is none.
+     */
+    public Layout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * Returns the full text of the layout that is shown, null when there is none.
+     */
+    public CharSequence getText() {
+        return mText;
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setClassName(android.widget.TextView.class.getName());
+        info.setText(mText);
+    }
+
+    @Override
+    public void onPopulateAccessibilityEvent(AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(event);
+        if (mText != null) {
+            event.getText().add(mText);
+        }
+    }
+
+    private int textHeight() {
+        return mLayout == null || mShownLines == 0 ? 0 : mLayout.getLineBottom(mShownLines - 1);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = textHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        canvas.clipRect(0, 0, mLayout.getWidth(), textHeight());
+        mLayout.draw(canvas);
+        canvas.restore();
+    }
+}
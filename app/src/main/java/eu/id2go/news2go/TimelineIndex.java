@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@link TimelineIndex} maps publication days to positions in a list of reports ordered newest
+ * first, so the list can be positioned at a date without scrolling through everything newer.
+ * Days outside the loaded range have no position, they are loaded from the GUARDIAN with
+ * from-date & to-date instead.
+ */
+public class TimelineIndex {
+
+    /**
+     * Position of the first (newest) report of every publication day, days as "yyyy-MM-dd"
+     */
+    private final TreeMap<String, Integer> mFirstPositionByDay = new TreeMap<>();
+
+    /**
+     * True when the reports are ordered newest first, positions are meaningless otherwise
+     */
+    private final boolean mNewestFirst;
+
+    /**
+     * Constructs a new {@link TimelineIndex} over the reports in their list order.
+     */
+    public TimelineIndex(List<Report> reports) {
+        boolean newestFirst = true;
+        String previousDate = null;
+        for (int i = 0; i < reports.size(); i++) {
+            String date = reports.get(i).getDateOfPublication();
+            // ISO 8601 timestamps in UTC compare chronologically as strings
+            if (previousDate != null && date.compareTo(previousDate) > 0) {
+                newestFirst = false;
+            }
+            previousDate = date;
+
+            String day = dayOf(date);
+            if (!mFirstPositionByDay.containsKey(day)) {
+                mFirstPositionByDay.put(day, i);
+            }
+        }
+        mNewestFirst = newestFirst;
+    }
+
+    /**
+     * Returns the publication day "yyyy-MM-dd" of a webPublicationDate.
+     */
+    public static String dayOf(String dateOfPublication) {
+        return dateOfPublication.length() < 10 ? dateOfPublication : dateOfPublication.substring(0, 10);
+    }
+
+    /**
+     * Returns the position of the newest report published on or before the given day, or -1
+     * when the day is not within the loaded range or the list is not ordered newest first.
+     *
+     * @param day as "yyyy-MM-dd"
+     */
+    public int positionOf(String day) {
+        if (!mNewestFirst || mFirstPositionByDay.isEmpty()
+                || day.compareTo(mFirstPositionByDay.firstKey()) < 0
+                || day.compareTo(mFirstPositionByDay.lastKey()) > 0) {
+            return -1;
+        }
+        Map.Entry<String, Integer> entry = mFirstPositionByDay.floorEntry(day);
+        return entry == null ? -1 : entry.getValue();
+    }
+}
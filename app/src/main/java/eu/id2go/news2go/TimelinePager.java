@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.id2go.news2go;
+
+import android.os.AsyncTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link TimelinePager} fills the gaps on either side of a list that was positioned at a date.
+ * Pages are bounded by the publication time of the newest or oldest report shown, so every page
+ * continues exactly where the list ends, however deep in the history it is.
+ */
+public class TimelinePager {
+
+    /**
+     * Receives the pages on the main thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called with reports newer than the newest one shown, the newest first.
+         */
+        void onNewerReports(List<Report> reports);
+
+        /**
+         * Called with reports older than the oldest one shown, the newest first.
+         */
+        void onOlderReports(List<Report> reports);
+
+        /**
+         * Called once the list caught up with the newest reports, no newer page is left.
+         */
+        void onNewestReached();
+    }
+
+    private final Listener mListener;
+
+    /**
+     * Search URL the pages are derived from
+     */
+    private final String mBaseUrl;
+
+    private boolean mLoadingNewer;
+    private boolean mLoadingOlder;
+    private boolean mNewerExhausted;
+    private boolean mOlderExhausted;
+
+    /**
+     * Constructs a new {@link TimelinePager}.
+     *
+     * @param baseUrl  is the search URL the pages are derived from
+     * @param listener receives the pages
+     */
+    public TimelinePager(String baseUrl, Listener listener) {
+        mBaseUrl = baseUrl;
+        mListener = listener;
+    }
+
+    /**
+     * Returns true once the list caught up with the newest reports, see
+     * {@link Listener#onNewestReached()}.
+     */
+    public boolean isNewestReached() {
+        return mNewerExhausted;
+    }
+
+    /**
+     * Loads the page of reports published after the newest one shown, unless one is loading or
+     * there are no newer reports.
+     */
+    public void loadNewer(final String newestDate) {
+        if (mLoadingNewer || mNewerExhausted || newestDate == null) {
+            return;
+        }
+        mLoadingNewer = true;
+        // The date bounds include their bound, start a second past the report shown
+        load(QueryUtils.buildDateBoundedUrl(mBaseUrl, "oldest",
+                QueryUtils.shiftPublicationDate(newestDate, 1), null), newestDate, true);
+    }
+
+    /**
+     * Loads the page of reports published before the oldest one shown, unless one is loading or
+     * there are no older reports.
+     */
+    public void loadOlder(final String oldestDate) {
+        if (mLoadingOlder || mOlderExhausted || oldestDate == null) {
+            return;
+        }
+        mLoadingOlder = true;
+        load(QueryUtils.buildDateBoundedUrl(mBaseUrl, "newest", null,
+                QueryUtils.shiftPublicationDate(oldestDate, -1)), oldestDate, false);
+    }
+
+    private void load(final String url, final String boundDate, final boolean newer) {
+        new AsyncTask<Void, Void, List<Report>>() {
+            @Override
+            protected List<Report> doInBackground(Void... params) {
+                return QueryUtils.fetchReportData(url);
+            }
+
+            @Override
+            protected void onPostExecute(List<Report> reports) {
+                // Keep only reports beyond the bound, in case the date could not be shifted
+                List<Report> page = new ArrayList<>();
+                if (reports != null) {
+                    for (Report report : reports) {
+                        int order = report.getDateOfPublication().compareTo(boundDate);
+                        if (newer ? order > 0 : order < 0) {
+                            page.add(report);
+                        }
+                    }
+                }
+
+                if (newer) {
+                    mLoadingNewer = false;
+                    mNewerExhausted = reports != null && page.isEmpty();
+                    // Newer pages come oldest first, the list shows the newest first
+                    Collections.reverse(page);
+                    if (!page.isEmpty()) {
+                        mListener.onNewerReports(page);
+                    } else if (mNewerExhausted) {
+                        mListener.onNewestReached();
+                    }
+                } else {
+                    mLoadingOlder = false;
+                    mOlderExhausted = reports != null && page.isEmpty();
+                    if (!page.isEmpty()) {
+                        mListener.onOlderReports(page);
+                    }
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+}
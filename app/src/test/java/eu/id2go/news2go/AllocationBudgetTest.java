@@ -0,0 +1,206 @@
+package eu.id2go.news2go;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation budgets of the refresh & scroll hot paths, measured on a recorded GUARDIAN payload
+ * with the allocation counter the JVM keeps per thread. Every stage fails the build when it
+ * allocates more bytes per report than its budget. Prints the bytes per report of every stage,
+ * run with ./gradlew testDebugUnitTest.
+ * <p>
+ * The JVM only counts bytes, not objects, so the budgets are in bytes. Rows can not be inflated
+ * on the JVM either, so there is no budget for binding a row. The bind check stage is only a
+ * partial proxy for ReportAdapter.getView: it runs the recycled row check and a missing title
+ * layout lookup, the parts of getView that do not touch a view, which must not allocate at all.
+ */
+public class AllocationBudgetTest {
+
+    private static final int REPORT_COUNT = 500;
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 20;
+
+    /**
+     * Names of the measured stages, in the order of their baselines
+     */
+    private static final String[] STAGES = {
+            "parse JSON", "read snapshot", "cluster index", "facet index", "bind check"};
+
+    /**
+     * Bytes per report the stages allocated when the budgets were set, with the org.json version
+     * of build.gradle, per Java version the unit tests run on. JVMs lay strings out & compile the
+     * parser differently, so a JVM without baselines fails the test until they are measured and
+     * added here. Lower a baseline after an allocation was removed, never raise one to make a
+     * regression pass.
+     */
+    private static final Map<String, long[]> BASELINES = new HashMap<>();
+
+    static {
+        // Java 8, which Gradle 4.4 & the Android plugin 3.1 run the unit tests on. Measured on
+        // Java 17 with -XX:-CompactStrings, which stores strings in two bytes per char as Java 8
+        // does; measure again on Java 8 itself when it is at hand
+        BASELINES.put("1.8", new long[]{12910, 1290, 410, 19, 0});
+        BASELINES.put("17", new long[]{9460, 1110, 410, 19, 0});
+    }
+
+    /**
+     * Headroom of every budget above its baseline, for the noise of the JIT between runs
+     */
+    private static final int BUDGET_MARGIN_PERCENT = 25;
+
+    private static final String JAVA_VERSION = System.getProperty("java.specification.version");
+
+    /**
+     * Text width the title layouts are looked up for, as on a phone in portrait
+     */
+    private static final int TITLE_WIDTH = 984;
+
+    private static com.sun.management.ThreadMXBean sThreadBean;
+
+    private String mJson;
+    private List<Report> mReports;
+
+    @Before
+    public void setUp() throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue("The JVM does not count allocated bytes",
+                threadBean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported());
+        sThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+        sThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        mJson = RecordedPayloads.search(REPORT_COUNT);
+        mReports = QueryUtils.extractFeatureFromJson(mJson);
+        assertEquals(REPORT_COUNT, mReports.size());
+    }
+
+    @Test
+    public void stagesStayWithinTheirBudgets() throws Exception {
+        final byte[] snapshot = ReportSnapshot.toBytes(mReports);
+        final ReportClusterIndex clusterIndex = new ReportClusterIndex();
+        final List<Report> representatives = clusterIndex.addAll(mReports);
+        final Set<Report> expanded = Collections.newSetFromMap(new IdentityHashMap<Report, Boolean>());
+        expanded.add(representatives.get(0));
+
+        long parseBytes = bytesPerReport(new Stage() {
+            @Override
+            public int run() {
+                return QueryUtils.extractFeatureFromJson(mJson).size();
+            }
+        });
+        long snapshotBytes = bytesPerReport(new Stage() {
+            @Override
+            public int run() throws Exception {
+                List<Report> reports = ReportSnapshot.wrap(snapshot);
+                int size = 0;
+                for (int i = 0; i < reports.size(); i++) {
+                    size += reports.get(i).getArticleTitle().length();
+                }
+                return size;
+            }
+        });
+        long clusterBytes = bytesPerReport(new Stage() {
+            @Override
+            public int run() {
+                return new ReportClusterIndex().addAll(mReports).size();
+            }
+        });
+        long facetBytes = bytesPerReport(new Stage() {
+            @Override
+            public int run() {
+                return new ReportFacetIndex(mReports).getSectionCounts().size();
+            }
+        });
+        long bindBytes = bytesPerReport(new Stage() {
+            @Override
+            public int run() {
+                // Part of what ReportAdapter.getView asks of the model: the recycled row check for
+                // a row that still shows its report and for a new one, and a title layout lookup
+                // that misses, since layouts can not be built on the JVM
+                int size = 0;
+                for (int i = 0; i < mReports.size(); i++) {
+                    Report report = mReports.get(i);
+                    int similarCount = clusterIndex.getSimilarCount(report);
+                    boolean isExpanded = expanded.contains(report);
+                    if (ReportAdapter.isBoundTo(report, similarCount, isExpanded,
+                            report, clusterIndex, expanded)) {
+                        size++;
+                    }
+                    if (!ReportAdapter.isBoundTo(null, 0, false,
+                            report, clusterIndex, expanded)) {
+                        size++;
+                    }
+                    if (ReportTextLayouts.getCachedTitleLayout(report, TITLE_WIDTH) == null) {
+                        size++;
+                    }
+                    size += report.getFirstName().length()
+                            + report.getLastName().length()
+                            + report.getArticleSection().length()
+                            + report.getDisplayDate().length()
+                            + report.getDisplayTime().length();
+                }
+                return size;
+            }
+        });
+
+        long[] bytes = {parseBytes, snapshotBytes, clusterBytes, facetBytes, bindBytes};
+        long[] baselines = BASELINES.get(JAVA_VERSION);
+        System.out.println("AllocationBudgetTest, " + REPORT_COUNT + " reports on Java "
+                + JAVA_VERSION + ", bytes allocated per report (budget)");
+        for (int i = 0; i < STAGES.length; i++) {
+            System.out.println(String.format("  %-16s %d", STAGES[i] + ":", bytes[i])
+                    + (baselines == null ? "" : " (" + budgetOf(baselines[i]) + ")"));
+        }
+
+        assertNotNull("No allocation baselines for Java " + JAVA_VERSION + ", add the numbers"
+                + " above to AllocationBudgetTest.BASELINES", baselines);
+        for (int i = 0; i < STAGES.length; i++) {
+            assertWithinBudget(STAGES[i], bytes[i], baselines[i]);
+        }
+    }
+
+    private static long budgetOf(long baseline) {
+        return baseline + baseline * BUDGET_MARGIN_PERCENT / 100;
+    }
+
+    private static void assertWithinBudget(String stage, long bytes, long baseline) {
+        long budget = budgetOf(baseline);
+        assertTrue(stage + " allocates " + bytes + " bytes per report, the budget is " + budget,
+                bytes <= budget);
+    }
+
+    private interface Stage {
+        int run() throws Exception;
+    }
+
+    /**
+     * Returns the average bytes the calling thread allocated per report in a run of the stage,
+     * after a warm up.
+     */
+    private static long bytesPerReport(Stage stage) throws Exception {
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += stage.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = sThreadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += stage.run();
+        }
+        long allocated = sThreadBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(sink > 0);
+        return allocated / ((long) ITERATIONS * REPORT_COUNT);
+    }
+}
@@ -0,0 +1,65 @@
+package eu.id2go.news2go;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for the budget and the shedding order of the {@link CacheRegistry}.
+ */
+public class CacheRegistryTest {
+
+    private static final MemoryCache.Sizer<String, String> LENGTH = new MemoryCache.Sizer<String, String>() {
+        @Override
+        public long sizeOf(String key, String value) {
+            return value.length();
+        }
+    };
+
+    @Test
+    public void keepsCachesUnderTheBudget() {
+        CacheRegistry registry = new CacheRegistry(100);
+        MemoryCache<String, String> cache = new MemoryCache<>("cache", CacheRegistry.PRIORITY_NORMAL,
+                LENGTH, registry);
+
+        cache.put("a", repeat(40));
+        cache.put("b", repeat(40));
+        cache.get("a");
+        cache.put("c", repeat(40));
+
+        // "b" was the least recently used entry
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(80, registry.getByteCost());
+        assertEquals(1, registry.getStats().get(0).evictions);
+    }
+
+    @Test
+    public void shedsLeastValuableCacheFirst() {
+        CacheRegistry registry = new CacheRegistry(1000);
+        MemoryCache<String, String> high = new MemoryCache<>("high", CacheRegistry.PRIORITY_HIGH,
+                LENGTH, registry);
+        MemoryCache<String, String> low = new MemoryCache<>("low", CacheRegistry.PRIORITY_LOW,
+                LENGTH, registry);
+        high.put("a", repeat(300));
+        low.put("a", repeat(300));
+        low.put("b", repeat(300));
+
+        registry.trimToFraction(0.5f);
+        assertEquals(1, high.size());
+        assertEquals(0, low.size());
+
+        List<CacheRegistry.CacheStats> stats = registry.getStats();
+        assertEquals("low", stats.get(0).name);
+        assertEquals(2, stats.get(0).evictions);
+
+        registry.trimToFraction(0f);
+        assertEquals(0, registry.getByteCost());
+    }
+
+    private static String repeat(int length) {
+        return new String(new char[length]).replace('\0', 'x');
+    }
+}
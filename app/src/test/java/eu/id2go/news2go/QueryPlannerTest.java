@@ -0,0 +1,66 @@
+package eu.id2go.news2go;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for the show parameters the {@link QueryPlanner} asks for, and for a response
+ * recorded with the planned parameters.
+ */
+public class QueryPlannerTest {
+
+    @Test
+    public void asksOnlyForWhatTheConsumersNeed() {
+        int listFields = QueryPlanner.merge(QueryPlanner.CONSUMER_LIST_ROW,
+                QueryPlanner.CONSUMER_READER, QueryPlanner.CONSUMER_SEARCH,
+                QueryPlanner.CONSUMER_SYNC);
+        assertEquals(Collections.singletonMap("show-tags", "contributor"),
+                QueryPlanner.showParametersOf(listFields));
+
+        // The reader & sync only need fields every search result carries
+        assertTrue(QueryPlanner.showParametersOf(QueryPlanner.merge(
+                QueryPlanner.CONSUMER_READER, QueryPlanner.CONSUMER_SYNC)).isEmpty());
+    }
+
+    @Test
+    public void plannedResponseDeliversEveryUsedField() throws Exception {
+        String planned = RecordedPayloads.load(RecordedPayloads.PLANNED_SEARCH);
+        JSONArray results = new JSONObject(planned).getJSONObject("response")
+                .getJSONArray("results");
+        List<Report> reports = QueryUtils.extractFeatureFromJson(planned);
+        assertEquals(results.length(), reports.size());
+
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+
+            // Every field the consumers declared made it into the report
+            Report report = reports.get(i);
+            assertEquals(result.getString("webTitle"), report.getArticleTitle());
+            assertEquals(result.getString("sectionId"), report.getSectionId());
+            assertEquals(result.getString("sectionName"), report.getArticleSection());
+            assertEquals(result.getString("webPublicationDate"), report.getDateOfPublication());
+            assertEquals(result.getString("webUrl"), report.getUrl());
+            JSONArray tags = result.getJSONArray("tags");
+            assertEquals(tags.length(), report.getContributorIds().size());
+            for (int t = 0; t < tags.length(); t++) {
+                JSONObject tag = tags.getJSONObject(t);
+                assertEquals("contributor", tag.getString("type"));
+                assertEquals(tag.getString("id"), report.getContributorIds().get(t));
+                assertEquals(tag.getString("webTitle"), report.getContributors().get(t));
+            }
+        }
+
+        String recorded = RecordedPayloads.load(RecordedPayloads.SEARCH);
+        long usedChars = QueryPlanner.usedCharsOf(reports);
+        System.out.println("QueryPlannerTest, " + reports.size() + " reports, "
+                + usedChars + " chars used");
+        System.out.println("  with show-references: " + recorded.length() + " chars requested");
+        System.out.println("  planned:              " + planned.length() + " chars requested");
+    }
+}
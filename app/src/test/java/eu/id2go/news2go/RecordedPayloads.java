@@ -0,0 +1,68 @@
+package eu.id2go.news2go;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the GUARDIAN responses recorded in the test resources for the local benchmarks.
+ */
+final class RecordedPayloads {
+
+    /**
+     * A recorded /search response with show-tags=contributor & show-references=author
+     */
+    static final String SEARCH = "guardian_search.json";
+
+    /**
+     * A /search response with the show parameters the {@link QueryPlanner} plans for the report
+     * list. Derived from {@link #SEARCH} by leaving out its references until it is recorded with
+     * scripts/record_planned_search.sh
+     */
+    static final String PLANNED_SEARCH = "guardian_search_planned.json";
+
+    private RecordedPayloads() {
+    }
+
+    /**
+     * Returns the recorded response with the given resource name.
+     */
+    static String load(String name) throws IOException {
+        InputStream inputStream = RecordedPayloads.class.getClassLoader().getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing recorded payload " + name);
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Returns the recorded search response with its results repeated up to the given count,
+     * every copy with its own URL.
+     */
+    static String search(int resultCount) throws IOException, JSONException {
+        JSONObject response = new JSONObject(load(SEARCH));
+        JSONArray recorded = response.getJSONObject("response").getJSONArray("results");
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < resultCount; i++) {
+            JSONObject result = new JSONObject(recorded.getJSONObject(i % recorded.length()).toString());
+            result.put("webUrl", result.getString("webUrl") + "?copy=" + i);
+            results.put(result);
+        }
+        response.getJSONObject("response").put("results", results);
+        return response.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package eu.id2go.news2go;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for the near-duplicate clustering of {@link ReportClusterIndex}.
+ */
+public class ReportClusterIndexTest {
+
+    private static Report report(String title, String url) {
+        return new Report("", "", new ArrayList<String>(), title, "politics", "Politics",
+                "2018-06-01T10:00:00Z", url);
+    }
+
+    @Test
+    public void collapsesLiveBlogFollowUps() {
+        Report live = report("Brexit live: May faces Commons showdown over customs plan", "a");
+        Report wrapUp = report("Brexit live: May faces Commons showdown over customs plan - as it happened", "b");
+        Report other = report("Chancellor signals spending squeeze ahead of autumn budget", "c");
+
+        ReportClusterIndex index = new ReportClusterIndex();
+        List<Report> representatives = index.addAll(Arrays.asList(live, wrapUp, other));
+
+        assertEquals(Arrays.asList(live, other), representatives);
+        assertEquals(Arrays.asList(wrapUp), index.getSimilar(live));
+        assertTrue(index.getSimilar(other).isEmpty());
+    }
+
+    @Test
+    public void skipsReportsThatWereAddedBefore() {
+        ReportClusterIndex index = new ReportClusterIndex();
+        Report report = report("Eurozone growth picks up despite trade war fears", "a");
+
+        assertSame(report, index.add(report));
+        assertNull(index.add(report("Eurozone growth picks up despite trade war fears", "a")));
+    }
+
+    @Test
+    public void restoresTheClustersOfASnapshot() throws Exception {
+        Report live = report("Brexit live: May faces Commons showdown over customs plan", "a");
+        Report other = report("Chancellor signals spending squeeze ahead of autumn budget", "b");
+        Report wrapUp = report("Brexit live: May faces Commons showdown over customs plan - as it happened", "c");
+        Report duplicate = report("Chancellor signals spending squeeze ahead of autumn budget", "b");
+
+        ReportSnapshot snapshot = ReportSnapshot.wrap(ReportSnapshot.toBytes(
+                Arrays.asList(live, other, wrapUp, duplicate)));
+        assertEquals(Arrays.asList(0, 1, 0, -1), Arrays.asList(snapshot.getRepresentativePosition(0),
+                snapshot.getRepresentativePosition(1), snapshot.getRepresentativePosition(2),
+                snapshot.getRepresentativePosition(3)));
+
+        ReportClusterIndex index = new ReportClusterIndex();
+        List<Report> representatives = index.restore(snapshot);
+        assertEquals(2, representatives.size());
+        assertEquals(live.getUrl(), representatives.get(0).getUrl());
+        assertEquals(other.getUrl(), representatives.get(1).getUrl());
+        assertEquals(1, index.getSimilarCount(representatives.get(0)));
+        assertEquals(wrapUp.getUrl(), index.getSimilar(representatives.get(0)).get(0).getUrl());
+        assertEquals(ReportClusterIndex.fingerprint(live.getArticleTitle()),
+                index.getFingerprint(representatives.get(0)));
+
+        // Reports added later still join the restored clusters
+        Report followUp = report("Brexit live: May faces Commons showdown over the customs plan", "d");
+        assertSame(representatives.get(0), index.add(followUp));
+        assertNull(index.add(report("Chancellor signals spending squeeze", "b")));
+    }
+
+    /**
+     * Words of politics and business headlines, the bulk test draws its titles from them
+     */
+    private static final String[] HEADLINE_WORDS = {
+            "minister", "council", "budget", "strike", "rail", "fares", "housing", "rents",
+            "election", "poll", "tariffs", "exports", "bank", "rates", "inflation", "wages",
+            "nurses", "hospital", "schools", "teachers", "police", "court", "ruling", "appeal",
+            "climate", "flood", "drought", "energy", "prices", "bills", "pension", "benefits",
+            "refugees", "border", "summit", "treaty", "sanctions", "embassy", "protest", "march",
+            "union", "merger", "shares", "profits", "jobs", "factory", "steel", "farmers",
+            "fishing", "quota", "airport", "runway", "motorway", "tolls", "broadband", "data",
+            "privacy", "watchdog", "inquiry", "report", "scandal", "resigns", "vote", "rebels",
+            "coalition", "speaker", "senate", "governor", "mayor", "referendum", "tax", "relief",
+            "deficit", "debt", "bonds", "markets", "crash", "recovery", "growth", "recession",
+            "landlords", "tenants", "students", "fees", "grants", "research", "vaccine", "trial",
+            "doctors", "waiting", "lists", "care", "homes", "charity", "donors", "lobbying"};
+
+    @Test
+    public void keepsDistinctTitlesApartInBulk() {
+        // Titles of unrelated stories, seven headline words each, so two titles share a word
+        // or two at most
+        java.util.Random random = new java.util.Random(42);
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int word = 0; word < 7; word++) {
+                if (word > 0) {
+                    title.append(' ');
+                }
+                title.append(HEADLINE_WORDS[random.nextInt(HEADLINE_WORDS.length)]);
+            }
+            reports.add(report(title.toString(), "url" + i));
+        }
+
+        List<Report> representatives = new ReportClusterIndex().addAll(reports);
+
+        // Unrelated stories would disappear into a "+N similar" row, none may be merged
+        assertEquals(reports.size(), representatives.size());
+    }
+}
@@ -0,0 +1,94 @@
+package eu.id2go.news2go;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for the section & contributor posting lists of {@link ReportFacetIndex}.
+ */
+public class ReportFacetIndexTest {
+
+    private static Report report(String sectionId, String section, String... contributors) {
+        return new Report("", "", Arrays.asList(contributors), "title", sectionId, section,
+                "2018-06-01T10:00:00Z", "https://www.theguardian.com/");
+    }
+
+    private final List<Report> mReports = Arrays.asList(
+            report("culture", "Culture", "Jane Doe"),
+            report("politics", "Politics", "Jane Doe", "John Scribles"),
+            report("culture", "Culture", "John Scribles"),
+            report("culture", "Culture"));
+
+    @Test
+    public void countsSectionsAndAuthors() {
+        ReportFacetIndex index = new ReportFacetIndex(mReports);
+
+        Map<String, Integer> sections = index.getSectionCounts();
+        assertEquals(Arrays.asList("culture", "politics"), Arrays.asList(sections.keySet().toArray()));
+        assertEquals(3, (int) sections.get("culture"));
+        assertEquals("Culture", index.getSectionName("culture"));
+
+        Map<String, Integer> authors = index.getAuthorCounts();
+        assertEquals(2, (int) authors.get("Jane Doe"));
+        assertEquals(2, (int) authors.get("John Scribles"));
+    }
+
+    @Test
+    public void keepsContributorsWithTheSameNameApart() {
+        List<Report> reports = Arrays.asList(
+                new Report("Jane", "Doe", Arrays.asList("Jane Doe"), Arrays.asList("profile/jane-doe"),
+                        "title", "culture", "Culture", "2018-06-01T10:00:00Z", "https://a"),
+                new Report("Jane", "Doe", Arrays.asList("Jane Doe"), Arrays.asList("profile/jane-doe-1"),
+                        "title", "sport", "Sport", "2018-06-01T10:00:00Z", "https://b"));
+        ReportFacetIndex index = new ReportFacetIndex(reports);
+
+        assertEquals(2, index.getAuthorCounts().size());
+        assertEquals(Arrays.asList(reports.get(1)), index.filter(null, "profile/jane-doe-1"));
+        assertEquals("Jane Doe", index.getAuthorName("profile/jane-doe-1"));
+    }
+
+    @Test
+    public void filtersOnBothFacets() {
+        ReportFacetIndex index = new ReportFacetIndex(mReports);
+
+        assertEquals(4, index.count(null, null));
+        assertEquals(1, index.count("culture", "Jane Doe"));
+        assertEquals(0, index.count("sport", null));
+        assertEquals(Arrays.asList(mReports.get(1), mReports.get(2)),
+                index.filter(null, "John Scribles"));
+    }
+
+    @Test
+    public void indexesTheStoriesCollapsedIntoARow() {
+        List<Report> reports = Arrays.asList(
+                new Report("", "", Arrays.asList("Jane Doe"), Arrays.asList("profile/jane-doe"),
+                        "Brexit talks collapse in Brussels", "politics", "Politics",
+                        "2018-06-01T10:00:00Z", "https://a"),
+                new Report("", "", Arrays.asList("John Scribles"), Arrays.asList("profile/john-scribles"),
+                        "Brexit talks collapse in Brussels - live", "world", "World news",
+                        "2018-06-01T09:00:00Z", "https://b"),
+                new Report("", "", Arrays.asList("Jane Doe"), Arrays.asList("profile/jane-doe"),
+                        "Wimbledon final goes to a fifth set", "sport", "Sport",
+                        "2018-06-01T08:00:00Z", "https://c"));
+        ReportClusterIndex clusterIndex = new ReportClusterIndex();
+        List<Report> rows = clusterIndex.addAll(reports);
+        assertEquals(Arrays.asList(reports.get(0), reports.get(2)), rows);
+
+        ReportFacetIndex index = new ReportFacetIndex(rows, clusterIndex);
+        assertEquals(2, index.size());
+        assertEquals(3, index.count(null, null));
+        assertEquals(1, (int) index.getAuthorCounts().get("profile/john-scribles"));
+        assertEquals("World news", index.getSectionName("world"));
+
+        // The only story of a contributor is collapsed, its row is kept once
+        assertEquals(Arrays.asList(reports.get(0)), index.filter(null, "profile/john-scribles"));
+        assertEquals(Arrays.asList(reports.get(0)), index.filter("world", null));
+        assertEquals(rows, index.filter(null, "profile/jane-doe"));
+        assertEquals(0, index.count("world", "profile/jane-doe"));
+    }
+}
@@ -0,0 +1,105 @@
+package eu.id2go.news2go;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Local benchmark of reloading clustered reports from a {@link ReportSnapshot} against parsing
+ * & clustering the GUARDIAN JSON again. Prints the average time per reload, run with
+ * ./gradlew testDebugUnitTest -Pbenchmarks; the plain unit test run only checks the round trip.
+ */
+public class ReportSnapshotBenchmark {
+
+    private static final int REPORT_COUNT = 2000;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void snapshotRoundTripsEveryField() throws Exception {
+        List<Report> parsed = QueryUtils.extractFeatureFromJson(RecordedPayloads.search(20));
+        File file = File.createTempFile("reports", ".snapshot");
+        try {
+            ReportSnapshot.write(file, parsed);
+            List<Report> snapshot = ReportSnapshot.open(file);
+
+            assertEquals(parsed.size(), snapshot.size());
+            for (int i = 0; i < parsed.size(); i++) {
+                Report expected = parsed.get(i);
+                Report actual = snapshot.get(i);
+                assertEquals(expected.getFirstName(), actual.getFirstName());
+                assertEquals(expected.getLastName(), actual.getLastName());
+                assertEquals(expected.getContributors(), actual.getContributors());
+                assertEquals(expected.getContributorIds(), actual.getContributorIds());
+                assertEquals(expected.getArticleTitle(), actual.getArticleTitle());
+                assertEquals(expected.getSectionId(), actual.getSectionId());
+                assertEquals(expected.getArticleSection(), actual.getArticleSection());
+                assertEquals(expected.getDateOfPublication(), actual.getDateOfPublication());
+                assertEquals(expected.getUrl(), actual.getUrl());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void snapshotReloadAgainstJson() throws Exception {
+        assumeTrue("Benchmarks run with -Pbenchmarks", Boolean.getBoolean("news2go.benchmarks"));
+
+        final String json = RecordedPayloads.search(REPORT_COUNT);
+        final File file = File.createTempFile("reports", ".snapshot");
+        try {
+            ReportSnapshot.write(file, QueryUtils.extractFeatureFromJson(json));
+
+            // What the loader does with a response, and with a snapshot instead
+            long jsonNanos = measure(new Reload() {
+                @Override
+                public int run() {
+                    List<Report> reports = QueryUtils.extractFeatureFromJson(json);
+                    new ReportClusterIndex().addAll(reports);
+                    return reports.size();
+                }
+            });
+            long snapshotNanos = measure(new Reload() {
+                @Override
+                public int run() throws Exception {
+                    ReportSnapshot snapshot = ReportSnapshot.open(file);
+                    new ReportClusterIndex().restore(snapshot);
+                    return snapshot.size();
+                }
+            });
+
+            System.out.println("ReportSnapshotBenchmark, " + REPORT_COUNT + " reports, "
+                    + file.length() + " snapshot bytes, " + json.length() + " JSON chars");
+            System.out.println("  JSON parse + clustering:   " + jsonNanos / 1000 + " us/op");
+            System.out.println("  snapshot open + restoring: " + snapshotNanos / 1000 + " us/op");
+        } finally {
+            file.delete();
+        }
+    }
+
+    private interface Reload {
+        int run() throws Exception;
+    }
+
+    /**
+     * Returns the average nanoseconds per run after a warm up.
+     */
+    private static long measure(Reload reload) throws Exception {
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += reload.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += reload.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals((WARMUP_ITERATIONS + ITERATIONS) * REPORT_COUNT, sink);
+        return elapsed / ITERATIONS;
+    }
+}
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+#
+# Repeatable cold start benchmark of News2Go on a connected device or emulator.
+#
+# Every run force-stops the app, drops its process and launches ReportActivity with
+# "am start -W". TotalTime is the time to the first frame, "Fully drawn" is logged by
+# reportFullyDrawn() once the first reports are shown. StartupTrace phases are printed
+# for the last run.
+#
+# Usage: scripts/cold_start_benchmark.sh [runs]   (install the app first, i.e. ./gradlew installDebug)
+
+set -euo pipefail
+
+RUNS=${1:-10}
+PACKAGE=eu.id2go.news2go
+ACTIVITY=$PACKAGE/.ReportActivity
+
+# Trace release builds too
+adb shell setprop log.tag.StartupTrace DEBUG
+
+first_frame_total=0
+fully_drawn_total=0
+fully_drawn_runs=0
+
+for run in $(seq 1 "$RUNS"); do
+    adb shell am force-stop "$PACKAGE"
+    sleep 1
+    adb logcat -c
+
+    first_frame=$(adb shell am start -W -n "$ACTIVITY" | tr -d '\r' | awk -F': ' '/^TotalTime/ {print $2}')
+    first_frame_total=$((first_frame_total + first_frame))
+
+    # Wait for the first content, the network request is part of it
+    fully_drawn=""
+    for _ in $(seq 1 30); do
+        fully_drawn=$(adb logcat -d -s ActivityManager:I ActivityTaskManager:I | tr -d '\r' \
+            | grep "Fully drawn $ACTIVITY" | sed -E 's/.*\+(([0-9]+)s)?([0-9]+)ms.*/\2 \3/' \
+            | awk '{ if (NF == 2) print $1 * 1000 + $2; else print $1 }' | tail -n 1)
+        [ -n "$fully_drawn" ] && break
+        sleep 1
+    done
+
+    if [ -n "$fully_drawn" ]; then
+        fully_drawn_total=$((fully_drawn_total + fully_drawn))
+        fully_drawn_runs=$((fully_drawn_runs + 1))
+    fi
+    echo "run $run: first frame ${first_frame} ms, first content ${fully_drawn:-n/a} ms"
+done
+
+echo
+echo "average first frame:   $((first_frame_total / RUNS)) ms over $RUNS runs"
+if [ "$fully_drawn_runs" -gt 0 ]; then
+    echo "average first content: $((fully_drawn_total / fully_drawn_runs)) ms over $fully_drawn_runs runs"
+fi
+echo
+echo "StartupTrace of the last run:"
+adb logcat -d -s StartupTrace:D | tr -d '\r'
@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+#
+# Repeatable fling benchmark of the News2Go report list on a connected device or emulator.
+#
+# Runs FlingFrameTest, which shows 1000 reports, flings the list from the first to the last row
+# and reports the frames FrameTimeMonitor saw dropped on the way.
+#
+# Usage: scripts/fling_benchmark.sh [runs]   (install both APKs first, i.e.
+#        ./gradlew installDebug installDebugAndroidTest)
+
+set -euo pipefail
+
+RUNS=${1:-3}
+RUNNER=eu.id2go.news2go.test/android.support.test.runner.AndroidJUnitRunner
+
+for run in $(seq 1 "$RUNS"); do
+    output=$(adb shell am instrument -w -r -e class eu.id2go.news2go.FlingFrameTest "$RUNNER" | tr -d '\r')
+    if ! echo "$output" | grep -q "INSTRUMENTATION_CODE: -1"; then
+        echo "$output"
+        exit 1
+    fi
+    value() {
+        echo "$output" | awk -F'=' -v key="INSTRUMENTATION_STATUS: $1" '$1 == key {print $2}' | tail -n 1
+    }
+    echo "run $run: $(value rows) rows, $(value flings) flings, $(value frames) frames," \
+        "$(value dropped_frames) dropped, worst frame $(value worst_frame_ms) ms"
+done
@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+#
+# Records the GUARDIAN /search response that QueryPlannerTest checks, asked with the show
+# parameters QueryPlanner plans for the report list (QueryPlannerTest asserts them as well).
+#
+# Usage: scripts/record_planned_search.sh [api-key]   (the public "test" key by default)
+
+set -euo pipefail
+
+API_KEY=${1:-test}
+OUTPUT=app/src/test/resources/guardian_search_planned.json
+
+curl -sf "https://content.guardianapis.com/search?order-by=newest&show-tags=contributor&page-size=10&api-key=$API_KEY" \
+    | python3 -c 'import json, sys; print(json.dumps(json.load(sys.stdin), indent=2, ensure_ascii=False))' \
+    > "$OUTPUT"
+
+echo "Recorded $OUTPUT"